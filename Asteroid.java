@@ -102,6 +102,7 @@ public class Asteroid extends Entity {
         hpStat = area() * 2;
         hp = hpStat;
         tag = Constants.ASTEROID_TAG;
+        kind = Constants.ASTEROID_KIND;
         points = area() / 2;
         angularVel = StdRandom.uniform() * 10 - 5;
         isLucky = StdRandom.uniform() < 0.01;
@@ -1,8 +1,22 @@
 import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 
 public class Background {
 
+    // static vars -------------------------------------------------------------
+
+    // the layer covers StdDraw's whole 512 pixel canvas
+    private static final int LAYER_PIXELS = 512;
+
+    // 60 fps frames between redrawing the cached layer by default
+    public static final double DEFAULT_REFRESH_FRAMES = 4;
+
+    // subclasses --------------------------------------------------------------
+
     private class BackgroundObj extends BasePolygon {
 
         private double omega;
@@ -14,7 +28,8 @@ public class Background {
             super(sides, size);
             this.vel = vel;
             this.omega = omega;
-            aabb = new Rectangle(verts);
+            ensureWorld();
+            aabb = new Rectangle(vertX, vertY);
             int gray = (int) (StdRandom.uniform() * 4 + 18);
             color = new Color(gray, gray, gray);
         }
@@ -22,12 +37,58 @@ public class Background {
         public void update(double dt) {
             rotate(omega * dt);
             translate(Vector.scale(vel, dt));
-            aabb.reencompass(verts);
+            ensureWorld();
+            aabb.reencompass(vertX, vertY);
+        }
+
+        // add the polygon to a path in layer pixels, y goes down in there
+        public void trace(Path2D.Double path, double pixelsPerUnit) {
+            ensureWorld();
+            path.reset();
+            path.moveTo(vertX[0] * pixelsPerUnit,
+                        (Constants.SCALE - vertY[0]) * pixelsPerUnit);
+            for (int i = 1; i < getN(); i++) {
+                path.lineTo(vertX[i] * pixelsPerUnit,
+                            (Constants.SCALE - vertY[i]) * pixelsPerUnit);
+            }
+            path.closePath();
         }
     }
 
+    // instance vars -----------------------------------------------------------
+
     private ArrayList<BackgroundObj> objs = new ArrayList<>();
 
+    // draw the objects into an image every so often instead of filling them
+    // every frame, off to fill them every frame like before
+    private boolean cached = true;
+
+    // fade from the previous refresh to the latest one, which is smooth but
+    // shows the background one refresh late
+    private boolean interpolate = false;
+
+    // frames get played on another thread, so the ones still queued or
+    // playing keep pointing at older refreshes
+    private boolean pipelined = false;
+
+    // clock time between refreshes and since the last one
+    private double refreshEvery = DEFAULT_REFRESH_FRAMES * Constants.FIXED_DT;
+    private double sinceRefresh;
+
+    // images refreshes get drawn into, taken in turn so none is redrawn
+    // while a frame could still use it, made as they're first needed
+    private BufferedImage[] layers;
+    private int nextLayer;
+
+    // the two latest refreshes
+    private BufferedImage previous;
+    private BufferedImage latest;
+
+    // reused for tracing every polygon
+    private Path2D.Double path = new Path2D.Double();
+
+    // constructors ------------------------------------------------------------
+
     public Background() {
         for (int i = 0; i < 5; i++) {
             int sides = StdRandom.uniform(4, 6);
@@ -42,6 +103,43 @@ public class Background {
         }
     }
 
+    // setters -----------------------------------------------------------------
+
+    public void setCached(boolean cached) {
+        this.cached = cached;
+        resetLayers();
+    }
+
+    public void setInterpolate(boolean interpolate) {
+        this.interpolate = interpolate;
+        resetLayers();
+    }
+
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+        resetLayers();
+    }
+
+    // redraw the layer every so many 60 fps frames
+    public void setRefreshFrames(double frames) {
+        if (frames <= 0) {
+            throw new IllegalArgumentException("Refresh frames must be > 0.");
+        }
+        refreshEvery = frames * Constants.FIXED_DT;
+    }
+
+    // other methods -----------------------------------------------------------
+
+    // size the rotation for the current settings, the frame being recorded
+    // needs one image or two when fading, and a pipeline has two more frames
+    // in flight that each hold on to one newer image than the last
+    private void resetLayers() {
+        int count = (interpolate ? 2 : 1) + (pipelined ? 2 : 0);
+        layers = new BufferedImage[count];
+        nextLayer = 0;
+        previous = latest = null;
+    }
+
     public void update(double dt) {
         for (BackgroundObj obj : objs) {
             obj.update(dt);
@@ -58,11 +156,73 @@ public class Background {
             else if (obj.aabb.getBot() < 0) {
                 obj.vel.y *= -1;
             }
-            obj.drawFill(new Vector(), obj.color);
+        }
+
+        Renderer renderer = Renderer.current();
+        if (!cached || !renderer.canDrawImages()) {
+            for (BackgroundObj obj : objs) {
+                obj.drawFill(new Vector(), obj.color);
+            }
+            return;
+        }
+
+        sinceRefresh += dt;
+        if (latest == null || sinceRefresh >= refreshEvery) {
+            if (layers == null) {
+                resetLayers();
+            }
+            previous = latest;
+            latest = renderLayer();
+            sinceRefresh = 0;
+        }
+
+        double scale = Constants.SCALE;
+        double c = scale / 2;
+        if (interpolate && previous != null) {
+            double alpha = Math.min(1, sinceRefresh / refreshEvery);
+            renderer.image(c, c, scale, scale, previous, 1);
+            renderer.image(c, c, scale, scale, latest, alpha);
+        }
+        else {
+            renderer.image(c, c, scale, scale, latest, 1);
         }
     }
 
-    public static void main(String[] args) {
+    // fill every object into the next image, the background color underneath
+    private BufferedImage renderLayer() {
+        BufferedImage image = layers[nextLayer];
+        if (image == null) {
+            image = new BufferedImage(LAYER_PIXELS, LAYER_PIXELS,
+                                      BufferedImage.TYPE_INT_RGB);
+            layers[nextLayer] = image;
+        }
+        nextLayer = (nextLayer + 1) % layers.length;
+
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                           RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(Constants.GAME_BG_COLOR);
+        g.fillRect(0, 0, LAYER_PIXELS, LAYER_PIXELS);
 
+        double pixelsPerUnit = LAYER_PIXELS / Constants.SCALE;
+        for (BackgroundObj obj : objs) {
+            obj.trace(path, pixelsPerUnit);
+            g.setColor(obj.color);
+            g.fill(path);
+        }
+        g.dispose();
+        return image;
+    }
+
+    public static void main(String[] args) {
+        Background bg = new Background();
+        Renderer renderer = new Renderer();
+        Renderer.use(renderer);
+        bg.setInterpolate(true);
+        for (int i = 0; i < 60; i++) {
+            bg.update(Constants.FIXED_DT);
+            renderer.flush();
+        }
+        StdOut.println(renderer.getLastCommands() + " commands a frame");
     }
 }
@@ -66,7 +66,7 @@ public class BasePolygon {
                 b.translate(bMTV);
             }
 
-            StdDraw.show();
+            Renderer.current().flush();
         }
     }
 
@@ -143,7 +143,7 @@ public class BasePolygon {
             }
             squares[0].drawOutline(scroll, Color.RED);
 
-            StdDraw.show();
+            Renderer.current().flush();
         }
     }
 
@@ -155,14 +155,42 @@ public class BasePolygon {
     // store circumscribe radius
     private double radius;
 
-    // store vertices
-    protected Point[] verts;
+    // store area, the shape never changes so this only gets computed once
+    private double area;
 
-    // store edges
-    protected Vector[] edges;
+    // shape in local space around the centroid, packed as x and y arrays,
+    // never changes after creation
+    private double[] localX;
+    private double[] localY;
+    private double[] localEdgeX;
+    private double[] localEdgeY;
+    private double[] localNormX;
+    private double[] localNormY;
 
-    // store normal vectors to each edge
-    protected Vector[] edgeNorms;
+    // transform, centroid position and rotation in degrees
+    private double posX;
+    private double posY;
+    private double angle;
+
+    // world space vertices, rebuilt from the transform when needed
+    protected double[] vertX;
+    protected double[] vertY;
+
+    // world space edges and normals to each edge
+    protected double[] edgeX;
+    protected double[] edgeY;
+    protected double[] normX;
+    protected double[] normY;
+
+    // reused by xVerts and yVerts so drawing doesn't allocate
+    private double[] drawX;
+    private double[] drawY;
+
+    // world vertices need rebuilding before they're used
+    private boolean worldDirty = true;
+
+    // world edges and normals need rotating before they're used
+    protected boolean vectorsDirty = true;
 
     // constructors ------------------------------------------------------------
 
@@ -183,16 +211,7 @@ public class BasePolygon {
             currDegrees += degreeIncr;
         }
 
-        n = x.length;
-        verts = new Point[n];
-        edges = new Vector[n];
-        edgeNorms = new Vector[n];
-
-        for (int i = 0; i < n; i++) {
-            verts[i] = new Point(x[i], y[i]);
-        }
-
-        generateVectors();
+        setShape(x, y);
     }
 
     // constructor with points inputted with parallel arrays
@@ -203,36 +222,12 @@ public class BasePolygon {
             throw new RuntimeException("X and Y array lengths do not match.");
         }
 
-        // instantiate the arrays
-        n = x.length;
-        verts = new Point[n];
-        edges = new Vector[n];
-        edgeNorms = new Vector[n];
-
-        // create points for each vertex
-        for (int i = 0; i < n; i++) {
-            verts[i] = new Point(x[i], y[i]);
-        }
-
-        // generate other polygon info
-        generateVectors();
+        setShape(x, y);
     }
 
     // same as constructor above, but given points
     public BasePolygon(Point[] points) {
-        // instantiate the arrays
-        n = points.length;
-        verts = new Point[n];
-        edges = new Vector[n];
-        edgeNorms = new Vector[n];
-
-        // create points for each vertex
-        for (int i = 0; i < n; i++) {
-            verts[i] = new Point(points[i]);
-        }
-
-        // generate other polygon info
-        generateVectors();
+        setVerts(points);
     }
 
     // getters -----------------------------------------------------------------
@@ -246,212 +241,321 @@ public class BasePolygon {
         return n;
     }
 
+    // return a copy of the world space vertices
     public Point[] getVerts() {
+        ensureWorld();
+        Point[] verts = new Point[n];
+        for (int i = 0; i < n; i++) {
+            verts[i] = new Point(vertX[i], vertY[i]);
+        }
         return verts;
     }
 
+    // return a copy of a single world space vertex
+    public Point getVertex(int i) {
+        ensureWorld();
+        return new Point(vertX[i], vertY[i]);
+    }
+
+    // return the rotation applied to the local shape, in degrees
+    public double getAngle() {
+        return angle;
+    }
+
     // setters -----------------------------------------------------------------
 
     public void setN(int n) {
         this.n = n;
     }
 
+    // replace the shape with new world space vertices
     public void setVerts(Point[] verts) {
-        n = verts.length;
-        this.verts = new Point[n];
-        for (int i = 0; i < n; i++) {
-            this.verts[i] = verts[i];
+        double[] x = new double[verts.length];
+        double[] y = new double[verts.length];
+        for (int i = 0; i < verts.length; i++) {
+            x[i] = verts[i].x;
+            y[i] = verts[i].y;
         }
+        setShape(x, y);
     }
 
     // other methods -----------------------------------------------------------
 
-    // generate edges and normal vectors
-    protected void generateVectors() {
+    // build the local shape from world space points, the transform ends up
+    // at their centroid with no rotation
+    private void setShape(double[] x, double[] y) {
+        n = x.length;
+
+        posX = 0;
+        posY = 0;
+        for (int i = 0; i < n; i++) {
+            posX = posX + x[i];
+            posY = posY + y[i];
+        }
+        posX = posX / n;
+        posY = posY / n;
+        angle = 0;
+
+        localX = new double[n];
+        localY = new double[n];
+        for (int i = 0; i < n; i++) {
+            localX[i] = x[i] - posX;
+            localY[i] = y[i] - posY;
+        }
+
         // create edges and normals from each point to the next
+        localEdgeX = new double[n];
+        localEdgeY = new double[n];
+        localNormX = new double[n];
+        localNormY = new double[n];
         for (int i = 0; i < n; i++) {
             int j = (i + 1) % n;
-            // generate edge vector, origin = p1
-            edges[i] = new Vector(verts[i], verts[j]);
-            // generate normal vector to edge vector, origin = middle of edge
-            Point edgeCenter = new Point(verts[i], Vector.scale(edges[i], 0.5));
-            Vector normal = edges[i].getPerpendicular();
-            normal.setOrigin(edgeCenter);
-            normal.normalize();
-            normal.scale(-1);
-            edgeNorms[i] = normal;
+            double dx = localX[j] - localX[i];
+            double dy = localY[j] - localY[i];
+            double len = Math.sqrt(dx * dx + dy * dy);
+            localEdgeX[i] = dx;
+            localEdgeY[i] = dy;
+            localNormX[i] = dy / len;
+            localNormY[i] = -dx / len;
         }
 
+        vertX = new double[n];
+        vertY = new double[n];
+        edgeX = new double[n];
+        edgeY = new double[n];
+        normX = new double[n];
+        normY = new double[n];
+        drawX = new double[n];
+        drawY = new double[n];
+
         radius = 0;
-        Point c = center();
-        for (Point p : verts) {
-            radius = Math.max(radius, c.distanceTo(p));
+        area = 0;
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            double d = Math.sqrt(localX[i] * localX[i] + localY[i] * localY[i]);
+            radius = Math.max(radius, d);
+            area += localX[i] * localY[j] - localY[i] * localX[j];
         }
+        area = Math.abs(area / 2);
+
+        worldDirty = true;
+        vectorsDirty = true;
     }
 
-    // return the area of the polygon
-    public double area() {
-        double area = 0;
+    // rebuild the world vertices from the local shape and the transform
+    protected void ensureWorld() {
+        if (!worldDirty) {
+            return;
+        }
 
+        double cos = Math.cos(Math.toRadians(angle));
+        double sin = Math.sin(Math.toRadians(angle));
         for (int i = 0; i < n; i++) {
-            int j = (i + 1) % n;
+            vertX[i] = localX[i] * cos - localY[i] * sin + posX;
+            vertY[i] = localY[i] * cos + localX[i] * sin + posY;
+        }
+        worldDirty = false;
+    }
+
+    // rotate the local edges and normals into world space, only depends on
+    // the angle so translating never makes these stale
+    protected void ensureVectors() {
+        if (!vectorsDirty) {
+            return;
+        }
 
-            area += verts[i].x * verts[j].y - verts[i].y * verts[j].x;
+        double cos = Math.cos(Math.toRadians(angle));
+        double sin = Math.sin(Math.toRadians(angle));
+        for (int i = 0; i < n; i++) {
+            edgeX[i] = localEdgeX[i] * cos - localEdgeY[i] * sin;
+            edgeY[i] = localEdgeY[i] * cos + localEdgeX[i] * sin;
+            normX[i] = localNormX[i] * cos - localNormY[i] * sin;
+            normY[i] = localNormY[i] * cos + localNormX[i] * sin;
         }
+        vectorsDirty = false;
+    }
 
-        return Math.abs(area / 2);
+    // build every lazy cache now, collide only reads after this so it can
+    // run on several threads at once until the polygon moves again
+    public void prepare() {
+        ensureWorld();
+        ensureVectors();
+    }
+
+    // throw the edges and normals away and rebuild them, returns the first
+    // normal's x, only here so Bench can time this step on its own
+    double rebuildVectors() {
+        vectorsDirty = true;
+        ensureVectors();
+        return normX[0];
+    }
+
+    // return the x coordinate of the centroid
+    public double centerX() {
+        return posX;
+    }
+
+    // return the y coordinate of the centroid
+    public double centerY() {
+        return posY;
+    }
+
+    // return the area of the polygon
+    public double area() {
+        return area;
     }
 
     // return the x coordinates for each vertex, can apply a scroll value
+    // the array is reused by the next call so copy it to keep it around
     public double[] xVerts(double scroll) {
-        double[] x = new double[n];
+        ensureWorld();
         for (int i = 0; i < n; i++) {
-            x[i] = verts[i].x - scroll;
+            drawX[i] = vertX[i] - scroll;
         }
-        return x;
+        return drawX;
     }
 
     // return the y coordinates for each vertex, can apply a scroll value
+    // the array is reused by the next call so copy it to keep it around
     public double[] yVerts(double scroll) {
-        double[] y = new double[n];
+        ensureWorld();
         for (int i = 0; i < n; i++) {
-            y[i] = verts[i].y - scroll;
+            drawY[i] = vertY[i] - scroll;
         }
-        return y;
+        return drawY;
     }
 
     // return the center
     public Point center() {
-        Point c = new Point(0, 0);
-        for (Point p : verts) {
-            c.x = c.x + p.x;
-            c.y = c.y + p.y;
-        }
-        c.x = c.x / n;
-        c.y = c.y / n;
-        return c;
+        return new Point(posX, posY);
     }
 
     // return the normal vector to the collision, will be 0, 0 if no collision
     // got the concept from n tutorial a reference
     public Vector collide(BasePolygon b) {
+        Vector mtv = new Vector();
+        collide(b, mtv);
+        return mtv;
+    }
+
+    // same as above but writes the mtv into out instead of allocating, out is
+    // zeroed on a miss, returns true if the mtv is non zero
+    public boolean collide(BasePolygon b, Vector out) {
+        ensureWorld();
+        ensureVectors();
+        b.ensureWorld();
+        b.ensureVectors();
 
         // minimum translation vector needed to separate two polygons
         double minOverlap = Double.POSITIVE_INFINITY;
-        Vector smallest = new Vector();
+        double smallestX = 0;
+        double smallestY = 0;
 
-        // gather all test axes
-        Vector[] test = new Vector[n + b.n];
-        for (int i = 0; i < n; i++) {
-            test[i] = edgeNorms[i];
-        }
-        for (int i = 0; i < b.n; i++) {
-            test[i + n] = b.edgeNorms[i];
-        }
-
-        // test all axes
-        for (Vector axis : test) {
-
-            // project this polygon onto axis
-            double maxA = axis.dot(verts[0]);
-            double minA = axis.dot(verts[0]);
-            for (int i = 1; i < n; i++) {
-                double projection = axis.dot(verts[i]);
-                maxA = Math.max(maxA, projection);
-                minA = Math.min(minA, projection);
-            }
-
-            // project that polygon onto axis
-            double maxB = axis.dot(b.verts[0]);
-            double minB = axis.dot(b.verts[0]);
-            for (int i = 1; i < b.n; i++) {
-                double projection = axis.dot(b.verts[i]);
-                maxB = Math.max(maxB, projection);
-                minB = Math.min(minB, projection);
-            }
+        // test this polygon's normals then that polygon's normals
+        for (int k = 0; k < n + b.n; k++) {
+            double ax = k < n ? normX[k] : b.normX[k - n];
+            double ay = k < n ? normY[k] : b.normY[k - n];
 
             // no overlap, return a 0 mtv
-            if (minA > maxB || minB > maxA) {
-                return new Vector();
+            double overlap = overlap(ax, ay, b);
+            if (overlap < 0) {
+                out.zero();
+                return false;
             }
 
             // find smallest overlap and corresponding axis
-            double overlap = Math.min(maxA - minB, maxB - minA);
             if (overlap < minOverlap) {
                 minOverlap = overlap;
-                smallest = axis;
+                smallestX = ax;
+                smallestY = ay;
             }
         }
 
+        // direction from that center to this center
+        double dx = posX - b.posX;
+        double dy = posY - b.posY;
+
         // flip smallest axis if it is pointing in the wrong direction
-        Point ca = center();
-        Point cb = b.center();
-        Vector direction = new Vector(cb, ca);
-        Vector mtv = new Vector(smallest);
-        if (mtv.dot(direction) < 0) {
-            mtv.scale(-1);
+        double sign = 1;
+        if (smallestX * dx + smallestY * dy < 0) {
+            sign = -1;
+        }
+
+        out.zero();
+        out.x = smallestX * sign * minOverlap;
+        out.y = smallestY * sign * minOverlap;
+        return out.isNonZero();
+    }
+
+    // project both polygons onto an axis and return how much they overlap,
+    // negative if they don't
+    private double overlap(double ax, double ay, BasePolygon b) {
+        // project this polygon onto axis
+        double maxA = ax * vertX[0] + ay * vertY[0];
+        double minA = maxA;
+        for (int i = 1; i < n; i++) {
+            double projection = ax * vertX[i] + ay * vertY[i];
+            maxA = Math.max(maxA, projection);
+            minA = Math.min(minA, projection);
+        }
+
+        // project that polygon onto axis
+        double maxB = ax * b.vertX[0] + ay * b.vertY[0];
+        double minB = maxB;
+        for (int i = 1; i < b.n; i++) {
+            double projection = ax * b.vertX[i] + ay * b.vertY[i];
+            maxB = Math.max(maxB, projection);
+            minB = Math.min(minB, projection);
         }
 
-        // return mtv
-        return Vector.scale(mtv, minOverlap);
+        return Math.min(maxA - minB, maxB - minA);
     }
 
     // reposition the polygon to a new x and y for its centroid
     public void recenter(double x, double y) {
-        Point c = center();
-        for (Point p : verts) {
-            p.x = p.x + x - c.x;
-            p.y = p.y + y - c.y;
-        }
-        generateVectors();
+        translate(x - posX, y - posY);
     }
 
     // reposition the polygon to a new point for its centroid
     public void recenter(Point p) {
-        Point c = center();
-        for (Point v : verts) {
-            v.x = v.x + p.x - c.x;
-            v.y = v.y + p.y - c.y;
-        }
-        generateVectors();
+        recenter(p.x, p.y);
     }
 
-    // translate method
+    // translate method, only the transform moves
     public void translate(double dx, double dy) {
-        for (Point p : verts) {
-            p.x = p.x + dx;
-            p.y = p.y + dy;
-        }
-        generateVectors();
+        posX = posX + dx;
+        posY = posY + dy;
+        worldDirty = true;
     }
 
     // translate method with vector
     public void translate(Vector v) {
-        for (Point p : verts) {
-            p.x = p.x + v.x;
-            p.y = p.y + v.y;
-        }
-        generateVectors();
+        translate(v.x, v.y);
     }
 
     // rotate method using degrees
     public void rotate(double degrees) {
-        double cos = Math.cos(Math.toRadians(degrees));
-        double sin = Math.sin(Math.toRadians(degrees));
-        Point c = center();
-        for (Point p : verts) {
-            double px = p.x - c.x;
-            double py = p.y - c.y;
-            p.x = px * cos - py * sin + c.x;
-            p.y = py * cos + px * sin + c.y;
+        angle = (angle + degrees) % 360;
+        worldDirty = true;
+        vectorsDirty = true;
+    }
+
+    // set the whole transform at once, used when positions are integrated
+    // somewhere else and written back
+    public void setTransform(double x, double y, double degrees) {
+        if (degrees != angle) {
+            vectorsDirty = true;
         }
-        generateVectors();
+        posX = x;
+        posY = y;
+        angle = degrees;
+        worldDirty = true;
     }
 
     // draws the basic polygon
     public void draw(Vector scroll) {
-        StdDraw.setPenColor(DEFAULT_OUTLINE);
-        StdDraw.polygon(xVerts(scroll.x), yVerts(scroll.y));
+        Renderer.current().setColor(DEFAULT_OUTLINE);
+        Renderer.current().polygon(xVerts(scroll.x), yVerts(scroll.y));
     }
 
     // draws the basic polygon with custom fill color
@@ -480,8 +584,8 @@ public class BasePolygon {
         double[] y = yVerts(scroll.y);
 
         // draw the filled
-        StdDraw.setPenColor(fill);
-        StdDraw.filledPolygon(x, y);
+        Renderer.current().setColor(fill);
+        Renderer.current().filledPolygon(x, y);
 
     }
 
@@ -490,28 +594,33 @@ public class BasePolygon {
         double[] x = xVerts(scroll.x);
         double[] y = yVerts(scroll.y);
 
-        StdDraw.setPenColor(outline);
-        StdDraw.polygon(x, y);
+        Renderer.current().setColor(outline);
+        Renderer.current().polygon(x, y);
     }
 
     // draws the edges as vectors
     public void drawVectors(Vector scroll) {
-        for (Vector edge : edges) {
+        ensureWorld();
+        ensureVectors();
+        for (int i = 0; i < n; i++) {
+            Vector edge = new Vector(edgeX[i], edgeY[i]);
+            edge.setOrigin(vertX[i], vertY[i]);
             edge.drawDebug(scroll);
         }
     }
 
     // draws just the points of the polygon
     public void drawVertices(Vector scroll) {
-        for (Point p : verts) {
-            StdDraw.circle(p.x - scroll.x, p.y - scroll.y, 0.5);
+        ensureWorld();
+        for (int i = 0; i < n; i++) {
+            Renderer.current().circle(vertX[i] - scroll.x,
+                                      vertY[i] - scroll.y, 0.5);
         }
     }
 
     // draws just the centroid of the polygon
     public void drawCentroid(Vector scroll) {
-        Point c = center();
-        StdDraw.circle(c.x - scroll.x, c.y - scroll.y, 0.5);
+        Renderer.current().circle(posX - scroll.x, posY - scroll.y, 0.5);
     }
 
     // draws the polygon with the normal vectors on each edge
@@ -521,13 +630,16 @@ public class BasePolygon {
         drawCentroid(scroll);
 
         // draw a dash through every edge to represent the normal for each edge
-        for (Vector norm : edgeNorms) {
-            Point center = norm.getOrigin();
-            StdDraw.circle(center.x, center.y, 1);
+        for (int i = 0; i < n; i++) {
+            Point center = new Point(vertX[i] + edgeX[i] * 0.5,
+                                     vertY[i] + edgeY[i] * 0.5);
+            Vector norm = new Vector(normX[i], normY[i]);
+            norm.setOrigin(center);
+            Renderer.current().circle(center.x, center.y, 1);
             Point start = new Point(center, Vector.scale(norm, 0.5));
             Point end = new Point(center, Vector.scale(norm, -0.5));
-            StdDraw.line(start.x - scroll.x, start.y - scroll.y,
-                         end.x - scroll.x, end.y - scroll.y);
+            Renderer.current().line(start.x - scroll.x, start.y - scroll.y,
+                                    end.x - scroll.x, end.y - scroll.y);
             norm.drawDebug(scroll);
         }
     }
@@ -537,7 +649,7 @@ public class BasePolygon {
         double scale = 100;
         StdDraw.setScale(0, scale);
         StdDraw.enableDoubleBuffering();
-        StdDraw.setPenRadius(0.005);
+        Renderer.current().setPenRadius(0.005);
 
         if (args.length == 0) {
             defaultTest();
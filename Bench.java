@@ -0,0 +1,329 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+/*
+Microbenchmarks for the geometry and collision hot paths. Each case is warmed
+up, then timed over a few iterations long enough to swamp the timer, and the
+bytes the thread allocated while it ran are read off the thread bean, so both
+time and garbage per op show up for every change to the geometry code. Cases
+that depend on the shape run once for each vertex count from 3 up to the most
+an asteroid can have.
+
+usage: java Bench [name filter] [iterations]
+ */
+public class Bench {
+
+    // static vars -------------------------------------------------------------
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int DEFAULT_ITERATIONS = 10;
+
+    // each iteration runs about this long once calibrated
+    private static final long ITERATION_NANOS = 50_000_000;
+
+    private static final int MIN_VERTICES = 3;
+
+    // results get folded in here so the work can't be optimized away
+    private static volatile double sink;
+
+    // null if the vm can't count allocations per thread
+    private static final com.sun.management.ThreadMXBean THREADS =
+            allocationBean();
+
+    // static methods ----------------------------------------------------------
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            com.sun.management.ThreadMXBean bean =
+                    (com.sun.management.ThreadMXBean)
+                            ManagementFactory.getThreadMXBean();
+            if (!bean.isThreadAllocatedMemorySupported()) {
+                return null;
+            }
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        catch (ClassCastException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    // return the bytes this thread has allocated so far, or -1
+    private static long allocated() {
+        if (THREADS == null) {
+            return -1;
+        }
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // run a case ops times, returns the nanoseconds it took
+    private static long time(Case c, long ops) {
+        double acc = 0;
+        long start = System.nanoTime();
+        for (long i = 0; i < ops; i++) {
+            acc += c.op();
+        }
+        long nanos = System.nanoTime() - start;
+        sink += acc;
+        return nanos;
+    }
+
+    // warm a case up and find how many ops fill an iteration
+    private static long calibrate(Case c) {
+        long ops = 1;
+        long nanos = time(c, ops);
+        while (nanos < ITERATION_NANOS / 10) {
+            ops *= 2;
+            nanos = time(c, ops);
+        }
+        ops = Math.max(1, ops * ITERATION_NANOS / Math.max(1, nanos));
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            time(c, ops);
+        }
+        return ops;
+    }
+
+    // measure a case that's already set up and print a line for it
+    private static void measure(Case c, int vertices, int iterations) {
+        long ops = calibrate(c);
+
+        double best = Double.MAX_VALUE;
+        double total = 0;
+        long bytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            long before = allocated();
+            long nanos = time(c, ops);
+            bytes += allocated() - before;
+
+            double perOp = (double) nanos / ops;
+            best = Math.min(best, perOp);
+            total += perOp;
+        }
+
+        String alloc = THREADS == null ? "n/a" : String.format(
+                "%.1f", (double) bytes / (ops * iterations));
+        StdOut.printf("%-28s %8s %12.2f %12.2f %12s%n", c.name,
+                      vertices > 0 ? Integer.toString(vertices) : "-",
+                      total / iterations, best, alloc);
+    }
+
+    // return a regular polygon centered on a point
+    private static CollidablePolygon polygon(int sides, double x, double y) {
+        CollidablePolygon poly =
+                new CollidablePolygon(new BasePolygon(sides, 1));
+        poly.recenter(x, y);
+        poly.rotate(90.0 / sides);
+        return poly;
+    }
+
+    // move b diagonally away from a until their boxes touch but the shapes
+    // don't, so the sat test runs and misses
+    private static void separate(CollidablePolygon a, CollidablePolygon b) {
+        Vector out = new Vector();
+        for (double d = 2; d > 0; d -= 0.01) {
+            b.recenter(a.centerX() + d, a.centerY() + d);
+            if (a.aabbCollide(b.getAabb()) && !a.collide(b, out)) {
+                return;
+            }
+        }
+        throw new RuntimeException("Couldn't place a near miss.");
+    }
+
+    private static ArrayList<Case> cases() {
+        ArrayList<Case> cases = new ArrayList<>();
+
+        // sat on the plain polygons, no box test in front
+        cases.add(new Case("BasePolygon.collide hit", true) {
+            private BasePolygon a, b;
+            private final Vector out = new Vector();
+
+            void setUp(int n) {
+                a = polygon(n, 0, 0);
+                b = polygon(n, 0.5, 0.25);
+            }
+
+            double op() {
+                return a.collide(b, out) ? out.x : 0;
+            }
+        });
+        cases.add(new Case("BasePolygon.collide miss", true) {
+            private BasePolygon a, b;
+            private final Vector out = new Vector();
+
+            void setUp(int n) {
+                a = polygon(n, 0, 0);
+                b = polygon(n, 3, 0);
+            }
+
+            double op() {
+                return a.collide(b, out) ? out.x : 1;
+            }
+        });
+
+        // the box test first, then sat if the boxes touch
+        cases.add(new Case("Collidable.collide hit", true) {
+            private CollidablePolygon a, b;
+            private final Vector out = new Vector();
+
+            void setUp(int n) {
+                a = polygon(n, 0, 0);
+                b = polygon(n, 0.5, 0.25);
+            }
+
+            double op() {
+                return a.collide(b, out) ? out.x : 0;
+            }
+        });
+        cases.add(new Case("Collidable.collide aabb hit", true) {
+            private CollidablePolygon a, b;
+            private final Vector out = new Vector();
+
+            void setUp(int n) {
+                a = polygon(n, 0, 0);
+                b = polygon(n, 0, 0);
+                separate(a, b);
+            }
+
+            double op() {
+                return a.collide(b, out) ? out.x : 1;
+            }
+        });
+        cases.add(new Case("Collidable.collide aabb miss", true) {
+            private CollidablePolygon a, b;
+            private final Vector out = new Vector();
+
+            void setUp(int n) {
+                a = polygon(n, 0, 0);
+                b = polygon(n, 5, 5);
+            }
+
+            double op() {
+                return a.collide(b, out) ? out.x : 1;
+            }
+        });
+
+        // transforms, each one followed by what a collide would rebuild
+        cases.add(new Case("rotate + prepare", true) {
+            private CollidablePolygon a;
+
+            void setUp(int n) {
+                a = polygon(n, 0, 0);
+            }
+
+            double op() {
+                a.rotate(1);
+                a.prepare();
+                return a.getAabb().getRht();
+            }
+        });
+        cases.add(new Case("translate + prepare", true) {
+            private CollidablePolygon a;
+            private double dx = 0.01;
+
+            void setUp(int n) {
+                a = polygon(n, 0, 0);
+            }
+
+            double op() {
+                dx = -dx;
+                a.translate(dx, dx);
+                a.prepare();
+                return a.getAabb().getRht();
+            }
+        });
+
+        // just the edges and normals, what generateVectors used to do
+        cases.add(new Case("ensureVectors", true) {
+            private CollidablePolygon a;
+
+            void setUp(int n) {
+                a = polygon(n, 0, 0);
+            }
+
+            double op() {
+                return a.rebuildVectors();
+            }
+        });
+
+        // genAsteroid picks its own vertex count
+        cases.add(new Case("Asteroid.genAsteroid", false) {
+            private final Vector vel = new Vector(0.1, 0.2);
+
+            void setUp(int n) {
+                StdRandom.setSeed(0);
+            }
+
+            double op() {
+                return Asteroid.genAsteroid(10, 10, vel, 3).area();
+            }
+        });
+
+        // the mtv flips every op so the pair stays put
+        cases.add(new Case("Entity.resolveCollision", true) {
+            private Entity a, b;
+            private final Vector mtv = new Vector(0.01, 0.02);
+
+            void setUp(int n) {
+                a = new Entity(polygon(n, 0, 0), new Vector(0.3, 0));
+                b = new Entity(polygon(n, 1, 0), new Vector(-0.2, 0.1));
+            }
+
+            double op() {
+                mtv.x = -mtv.x;
+                mtv.y = -mtv.y;
+                Entity.resolveCollision(a, b, mtv);
+                return a.getVel().x;
+            }
+        });
+
+        return cases;
+    }
+
+    // subclasses --------------------------------------------------------------
+
+    // one thing to time, set up again for each vertex count it runs at
+    private abstract static class Case {
+
+        private final String name;
+        private final boolean perVertexCount;
+
+        private Case(String name, boolean perVertexCount) {
+            this.name = name;
+            this.perVertexCount = perVertexCount;
+        }
+
+        abstract void setUp(int n);
+
+        // do the work once, return something that depends on it
+        abstract double op();
+    }
+
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? args[0].toLowerCase() : "";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1])
+                                         : DEFAULT_ITERATIONS;
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Iterations must be >= 1.");
+        }
+
+        StdOut.printf("%-28s %8s %12s %12s %12s%n", "case", "vertices",
+                      "ns/op", "best ns/op", "B/op");
+        for (Case c : cases()) {
+            if (!c.name.toLowerCase().contains(filter)) {
+                continue;
+            }
+            if (!c.perVertexCount) {
+                c.setUp(0);
+                measure(c, 0, iterations);
+                continue;
+            }
+            for (int n = MIN_VERTICES; n <= Asteroid.MAX_VERTICES; n++) {
+                c.setUp(n);
+                measure(c, n, iterations);
+            }
+        }
+        if (sink == 42) {
+            StdOut.println();
+        }
+    }
+}
@@ -0,0 +1,536 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+public class Broadphase {
+
+    // static vars -------------------------------------------------------------
+
+    // default cell size for the spatial hash, roughly one big asteroid across
+    public static final double DEFAULT_CELL_SIZE = Constants.SCALE * 0.1;
+
+    // static methods ----------------------------------------------------------
+
+    // pick a broadphase by name, used for choosing one at startup
+    public static Broadphase create(String name) {
+        switch (name.toUpperCase()) {
+            case "BRUTE":
+                return new Broadphase();
+            case "HASH":
+                return new SpatialHash();
+            case "SAP":
+                return new SweepAndPrune();
+            default:
+                throw new IllegalArgumentException("Unknown broadphase: " + name);
+        }
+    }
+
+    // subclasses --------------------------------------------------------------
+
+    // uniform grid hashed by cell coordinates, entities go in every cell their
+    // bounding box touches
+    public static class SpatialHash extends Broadphase {
+
+        // instance vars -------------------------------------------------------
+
+        private double cellSize;
+
+        // open addressing table of cells, each cell is a linked list of entries
+        private long[] cellKeys = new long[64];
+        private int[] cellHeads = new int[64];
+        private int[] cellStamps = new int[64];
+        private int cellCount;
+        private int stamp = 1;
+
+        // entries in the linked lists
+        private int[] entryIds = new int[64];
+        private int[] entryNext = new int[64];
+        private int entryCount;
+
+        // cell range each entity was last inserted into
+        private int[] minCx = new int[16];
+        private int[] maxCx = new int[16];
+        private int[] minCy = new int[16];
+        private int[] maxCy = new int[16];
+
+        // stamps so an entity is only returned once per query
+        private int[] seen = new int[16];
+        private int queryStamp = 0;
+
+        // constructors --------------------------------------------------------
+
+        public SpatialHash() {
+            this(DEFAULT_CELL_SIZE);
+        }
+
+        public SpatialHash(double cellSize) {
+            if (cellSize <= 0) {
+                throw new IllegalArgumentException("Cell size must be > 0.");
+            }
+            this.cellSize = cellSize;
+        }
+
+        // getters -------------------------------------------------------------
+
+        public double getCellSize() {
+            return cellSize;
+        }
+
+        // other methods -------------------------------------------------------
+
+        public void rebuild(ArrayList<? extends Entity> entities) {
+            this.entities = entities;
+            int n = entities.size();
+
+            ensureEntityCapacity(n);
+
+            // size the table for roughly 4 cells per entity at half load
+            int capacity = cellKeys.length;
+            while (capacity < n * 8) {
+                capacity *= 2;
+            }
+            if (capacity != cellKeys.length) {
+                cellKeys = new long[capacity];
+                cellHeads = new int[capacity];
+                cellStamps = new int[capacity];
+            }
+
+            // bumping the stamp empties every cell without clearing arrays
+            stamp++;
+            cellCount = 0;
+            entryCount = 0;
+
+            for (int i = 0; i < n; i++) {
+                insert(i);
+            }
+        }
+
+        public void add(int id) {
+            ensureEntityCapacity(id + 1);
+            insert(id);
+        }
+
+        public void update(int id) {
+            Rectangle r = entities.get(id).poly.getAabb();
+            int x0 = cell(r.getLft());
+            int x1 = cell(r.getRht());
+            int y0 = cell(r.getBot());
+            int y1 = cell(r.getTop());
+
+            // stale entries in old cells get filtered out by the aabb test in
+            // query, so only the newly covered cells need the entity added
+            for (int cx = x0; cx <= x1; cx++) {
+                for (int cy = y0; cy <= y1; cy++) {
+                    if (cx < minCx[id] || cx > maxCx[id] ||
+                            cy < minCy[id] || cy > maxCy[id]) {
+                        insertEntry(cx, cy, id);
+                    }
+                }
+            }
+
+            minCx[id] = Math.min(minCx[id], x0);
+            maxCx[id] = Math.max(maxCx[id], x1);
+            minCy[id] = Math.min(minCy[id], y0);
+            maxCy[id] = Math.max(maxCy[id], y1);
+        }
+
+        public int query(Rectangle r, int from) {
+            count = 0;
+            queryStamp++;
+
+            int x0 = cell(r.getLft());
+            int x1 = cell(r.getRht());
+            int y0 = cell(r.getBot());
+            int y1 = cell(r.getTop());
+
+            for (int cx = x0; cx <= x1; cx++) {
+                for (int cy = y0; cy <= y1; cy++) {
+                    int slot = findSlot(cx, cy);
+                    if (cellStamps[slot] != stamp) {
+                        continue;
+                    }
+                    for (int e = cellHeads[slot]; e != -1; e = entryNext[e]) {
+                        int j = entryIds[e];
+                        if (j <= from || seen[j] == queryStamp) {
+                            continue;
+                        }
+                        seen[j] = queryStamp;
+                        if (r.collide(entities.get(j).poly.getAabb())) {
+                            addCandidate(j);
+                        }
+                    }
+                }
+            }
+
+            // keep the same order as the plain pair loop
+            Arrays.sort(candidates, 0, count);
+            return count;
+        }
+
+        // return the cell coordinate for a world coordinate
+        private int cell(double v) {
+            return (int) Math.floor(v / cellSize);
+        }
+
+        // insert an entity into every cell its bounding box covers
+        private void insert(int id) {
+            Rectangle r = entities.get(id).poly.getAabb();
+            minCx[id] = cell(r.getLft());
+            maxCx[id] = cell(r.getRht());
+            minCy[id] = cell(r.getBot());
+            maxCy[id] = cell(r.getTop());
+
+            for (int cx = minCx[id]; cx <= maxCx[id]; cx++) {
+                for (int cy = minCy[id]; cy <= maxCy[id]; cy++) {
+                    insertEntry(cx, cy, id);
+                }
+            }
+        }
+
+        // push an entity onto the front of a cell's list
+        private void insertEntry(int cx, int cy, int id) {
+            // grow the table if it is getting too full
+            if ((cellCount + 1) * 2 > cellKeys.length) {
+                growCells();
+            }
+
+            int slot = findSlot(cx, cy);
+            if (cellStamps[slot] != stamp) {
+                cellStamps[slot] = stamp;
+                cellKeys[slot] = key(cx, cy);
+                cellHeads[slot] = -1;
+                cellCount++;
+            }
+
+            if (entryCount == entryIds.length) {
+                entryIds = Arrays.copyOf(entryIds, entryCount * 2);
+                entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+            }
+            entryIds[entryCount] = id;
+            entryNext[entryCount] = cellHeads[slot];
+            cellHeads[slot] = entryCount;
+            entryCount++;
+        }
+
+        // linear probe for a cell, returns an empty slot if it isn't there
+        private int findSlot(int cx, int cy) {
+            long k = key(cx, cy);
+            int mask = cellKeys.length - 1;
+            int slot = hash(k) & mask;
+            while (cellStamps[slot] == stamp && cellKeys[slot] != k) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        // double the table and rehash every live cell
+        private void growCells() {
+            long[] oldKeys = cellKeys;
+            int[] oldHeads = cellHeads;
+            int[] oldStamps = cellStamps;
+
+            cellKeys = new long[oldKeys.length * 2];
+            cellHeads = new int[oldKeys.length * 2];
+            cellStamps = new int[oldKeys.length * 2];
+
+            int mask = cellKeys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldStamps[i] != stamp) {
+                    continue;
+                }
+                int slot = hash(oldKeys[i]) & mask;
+                while (cellStamps[slot] == stamp) {
+                    slot = (slot + 1) & mask;
+                }
+                cellStamps[slot] = stamp;
+                cellKeys[slot] = oldKeys[i];
+                cellHeads[slot] = oldHeads[i];
+            }
+        }
+
+        private void ensureEntityCapacity(int n) {
+            if (n > minCx.length) {
+                int size = Math.max(n, minCx.length * 2);
+                minCx = Arrays.copyOf(minCx, size);
+                maxCx = Arrays.copyOf(maxCx, size);
+                minCy = Arrays.copyOf(minCy, size);
+                maxCy = Arrays.copyOf(maxCy, size);
+                seen = Arrays.copyOf(seen, size);
+            }
+        }
+
+        private static long key(int cx, int cy) {
+            return ((long) cx << 32) | (cy & 0xffffffffL);
+        }
+
+        private static int hash(long k) {
+            k *= 0x9E3779B97F4A7C15L;
+            return (int) (k ^ (k >>> 32));
+        }
+    }
+
+    // sort and sweep along x, the sorted order is kept between ticks so the
+    // insertion sort only has to fix up the few entities that swapped places
+    public static class SweepAndPrune extends Broadphase {
+
+        // instance vars -------------------------------------------------------
+
+        // entities sorted by the left side of their bounding box
+        private Entity[] order = new Entity[16];
+        private double[] lfts = new double[16];
+        private int[] ids = new int[16];
+        private int n;
+
+        // position of each id in the sorted arrays
+        private int[] rank = new int[16];
+
+        // widest box, bounds how far back a query has to look
+        private double maxWidth;
+
+        // lookup from entity to its index for carrying the order over
+        private IdentityHashMap<Entity, Integer> index = new IdentityHashMap<>();
+        private int[] placed = new int[16];
+        private int stamp = 0;
+
+        // constructors --------------------------------------------------------
+
+        public SweepAndPrune() {
+        }
+
+        // other methods -------------------------------------------------------
+
+        public void rebuild(ArrayList<? extends Entity> entities) {
+            this.entities = entities;
+            int size = entities.size();
+            ensureCapacity(size);
+
+            index.clear();
+            for (int i = 0; i < size; i++) {
+                index.put(entities.get(i), i);
+            }
+
+            // keep everything still alive in last tick's order
+            stamp++;
+            int m = 0;
+            for (int k = 0; k < n; k++) {
+                Integer id = index.get(order[k]);
+                if (id != null && placed[id] != stamp) {
+                    placed[id] = stamp;
+                    order[m] = order[k];
+                    ids[m] = id;
+                    m++;
+                }
+            }
+
+            // new entities go on the end and get sorted in below
+            for (int i = 0; i < size; i++) {
+                if (placed[i] != stamp) {
+                    order[m] = entities.get(i);
+                    ids[m] = i;
+                    m++;
+                }
+            }
+            for (int k = m; k < n; k++) {
+                order[k] = null;
+            }
+            n = m;
+
+            maxWidth = 0;
+            for (int k = 0; k < n; k++) {
+                Rectangle r = order[k].poly.getAabb();
+                lfts[k] = r.getLft();
+                maxWidth = Math.max(maxWidth, r.width());
+            }
+
+            // things barely move each tick so this is close to linear
+            for (int k = 1; k < n; k++) {
+                sortDown(k);
+            }
+            for (int k = 0; k < n; k++) {
+                rank[ids[k]] = k;
+            }
+        }
+
+        public void add(int id) {
+            ensureCapacity(Math.max(id + 1, n + 1));
+            Rectangle r = entities.get(id).poly.getAabb();
+            order[n] = entities.get(id);
+            ids[n] = id;
+            lfts[n] = r.getLft();
+            rank[id] = n;
+            maxWidth = Math.max(maxWidth, r.width());
+            n++;
+            fixRanks(sortDown(n - 1), n - 1);
+        }
+
+        public void update(int id) {
+            Rectangle r = entities.get(id).poly.getAabb();
+            int k = rank[id];
+            lfts[k] = r.getLft();
+            maxWidth = Math.max(maxWidth, r.width());
+
+            // slide the entity whichever way it moved
+            int end = sortUp(k);
+            if (end != k) {
+                fixRanks(k, end);
+            }
+            else {
+                fixRanks(sortDown(k), k);
+            }
+        }
+
+        public int query(Rectangle r, int from) {
+            count = 0;
+
+            // nothing starting further left than this can reach r
+            int k = lowerBound(r.getLft() - maxWidth);
+            for (; k < n && lfts[k] <= r.getRht(); k++) {
+                int j = ids[k];
+                if (j <= from) {
+                    continue;
+                }
+                if (r.collide(order[k].poly.getAabb())) {
+                    addCandidate(j);
+                }
+            }
+
+            // keep the same order as the plain pair loop
+            Arrays.sort(candidates, 0, count);
+            return count;
+        }
+
+        // move the entry at k left until it is sorted, returns where it ended
+        private int sortDown(int k) {
+            Entity e = order[k];
+            double lft = lfts[k];
+            int id = ids[k];
+            while (k > 0 && lfts[k - 1] > lft) {
+                order[k] = order[k - 1];
+                lfts[k] = lfts[k - 1];
+                ids[k] = ids[k - 1];
+                k--;
+            }
+            order[k] = e;
+            lfts[k] = lft;
+            ids[k] = id;
+            return k;
+        }
+
+        // move the entry at k right until it is sorted, returns where it ended
+        private int sortUp(int k) {
+            Entity e = order[k];
+            double lft = lfts[k];
+            int id = ids[k];
+            while (k < n - 1 && lfts[k + 1] < lft) {
+                order[k] = order[k + 1];
+                lfts[k] = lfts[k + 1];
+                ids[k] = ids[k + 1];
+                k++;
+            }
+            order[k] = e;
+            lfts[k] = lft;
+            ids[k] = id;
+            return k;
+        }
+
+        // refresh the ranks of everything between lo and hi
+        private void fixRanks(int lo, int hi) {
+            for (int k = Math.min(lo, hi); k <= Math.max(lo, hi); k++) {
+                rank[ids[k]] = k;
+            }
+        }
+
+        // first sorted position with a left side >= value
+        private int lowerBound(double value) {
+            int lo = 0;
+            int hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (lfts[mid] < value) {
+                    lo = mid + 1;
+                }
+                else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        private void ensureCapacity(int size) {
+            if (size > order.length) {
+                int cap = Math.max(size, order.length * 2);
+                order = Arrays.copyOf(order, cap);
+                lfts = Arrays.copyOf(lfts, cap);
+                ids = Arrays.copyOf(ids, cap);
+            }
+            if (size > rank.length) {
+                int cap = Math.max(size, rank.length * 2);
+                rank = Arrays.copyOf(rank, cap);
+                placed = Arrays.copyOf(placed, cap);
+            }
+        }
+    }
+
+    // instance vars -----------------------------------------------------------
+
+    // list the broadphase was built over, ids are indices into it
+    protected ArrayList<? extends Entity> entities;
+
+    // candidates from the last query
+    protected int[] candidates = new int[16];
+    protected int count;
+
+    // constructors ------------------------------------------------------------
+
+    // default constructor, tests every pair like the original loop
+    public Broadphase() {
+    }
+
+    // getters -----------------------------------------------------------------
+
+    // return a candidate from the last query
+    public int getCandidate(int k) {
+        return candidates[k];
+    }
+
+    // other methods -----------------------------------------------------------
+
+    // build the structure over the entities for this tick
+    public void rebuild(ArrayList<? extends Entity> entities) {
+        this.entities = entities;
+    }
+
+    // an entity was appended to the list at index id
+    public void add(int id) {
+    }
+
+    // the entity at index id moved
+    public void update(int id) {
+    }
+
+    // find every entity after index from that could touch entity id,
+    // returns the number of candidates, which are sorted by index
+    public int query(int id, int from) {
+        return query(entities.get(id).poly.getAabb(), from);
+    }
+
+    // same as above but for any bounding box, even one not in the list
+    public int query(Rectangle r, int from) {
+        count = 0;
+        for (int j = from + 1; j < entities.size(); j++) {
+            addCandidate(j);
+        }
+        return count;
+    }
+
+    // add a candidate, growing the array if needed
+    protected void addCandidate(int j) {
+        if (count == candidates.length) {
+            candidates = Arrays.copyOf(candidates, count * 2);
+        }
+        candidates[count++] = j;
+    }
+
+    public static void main(String[] args) {
+    }
+}
@@ -40,10 +40,14 @@ public class Buff extends Entity {
     protected int value = 1;
     protected Color glow;
 
+    // set while the buff is picked up but not yet taken out of the world
+    protected boolean pickedUp = false;
+
     // constructors ------------------------------------------------------------
 
     // default constructor
     public Buff() {
+        kind = Constants.BUFF_KIND;
     }
 
     // constructor
@@ -52,10 +56,23 @@ public class Buff extends Entity {
         super(BasePolygon.genShape(sides, size), new Vector());
         this.size = size;
         this.tag = tag;
+        kind = Constants.BUFF_KIND;
         buffRad = rad;
         poly.recenter(x, y);
     }
 
+    // getters -----------------------------------------------------------------
+
+    public boolean isPickedUp() {
+        return pickedUp;
+    }
+
+    // setters -----------------------------------------------------------------
+
+    public void setPickedUp(boolean pickedUp) {
+        this.pickedUp = pickedUp;
+    }
+
     // other methods -----------------------------------------------------------
 
     public void apply(Entity e) {
@@ -17,10 +17,17 @@ public class Bullet extends Entity {
     protected double angle;
     protected Color glow;
 
+    // the ship that fired it, null if nobody did
+    protected Entity owner;
+
+    // scratch mtv for bullet on bullet tests
+    private Vector contact = new Vector();
+
     // constructors ------------------------------------------------------------
 
     // default constructor
     public Bullet() {
+        kind = Constants.BULLET_KIND;
     }
 
     // basic constructor
@@ -39,6 +46,7 @@ public class Bullet extends Entity {
         poly.recenter(pos);
         hp = 1;
         tag = ownerTag;
+        kind = Constants.BULLET_KIND;
     }
 
     // getters -----------------------------------------------------------------
@@ -67,6 +75,10 @@ public class Bullet extends Entity {
         return glow;
     }
 
+    public Entity getOwner() {
+        return owner;
+    }
+
     // setters -----------------------------------------------------------------
 
     public void setPos(Point pos) {
@@ -89,6 +101,10 @@ public class Bullet extends Entity {
         this.angle = angle;
     }
 
+    public void setOwner(Entity owner) {
+        this.owner = owner;
+    }
+
     public void setGlow(Color g) {
         glow = new Color(g.getRed(), g.getBlue(), g.getGreen(), g.getAlpha());
     }
@@ -97,7 +113,7 @@ public class Bullet extends Entity {
 
     // collide method with other bullets
     public boolean collide(Bullet b) {
-        return poly.collide(b.poly).isNonZero();
+        return poly.collide(b.poly, contact);
     }
 
     // area method
@@ -111,17 +127,18 @@ public class Bullet extends Entity {
     }
 
     // collide method
-    public Vector collide(Entity e) {
+    public boolean collide(Entity e, Vector out) {
         if (!e.canBeDamaged()) {
-            return new Vector();
+            out.zero();
+            return false;
         }
 
-        Vector mtv = super.collide(e);
-        if (mtv.isNonZero()) {
+        if (super.collide(e, out)) {
             hp--;
-            return mtv;
+            return true;
         }
-        return new Vector();
+        out.zero();
+        return false;
     }
 
     // used by subclass
@@ -135,8 +152,8 @@ public class Bullet extends Entity {
         c.subtract(scroll);
 
         // draw bullet
-        StdDraw.setPenColor(Constants.PRIMARY_COLOR);
-        StdDraw.circle(c.x, c.y, size / 2);
+        Renderer.current().setColor(Constants.PRIMARY_COLOR);
+        Renderer.current().circle(c.x, c.y, size / 2);
 
         // draw the glow effect
         VFX.glow(c, size * 1.1, glow, 1);
@@ -1,10 +1,48 @@
+import java.util.Arrays;
+
 // everything is in milliseconds
 public class Clock {
 
+    // static vars -------------------------------------------------------------
+
+    // where every clock and timer reads the time from
+    private static TimeSource source = new TimeSource();
+
+    // weight of the newest frame in the smoothed frame time
+    private static final double SMOOTHING = 0.1;
+
+    // time shared by everything in a frame, taken on each tick
+    private static double stamp = time();
+
     // static methods ----------------------------------------------------------
 
+    // return the current time in milliseconds, only differences mean anything
     public static double time() {
-        return System.currentTimeMillis();
+        return source.nanos() / 1.0e6;
+    }
+
+    // swap where the time comes from, e.g. a manual source for headless runs
+    public static void setTimeSource(TimeSource source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Time source can't be null.");
+        }
+        Clock.source = source;
+        stamp();
+    }
+
+    public static TimeSource getTimeSource() {
+        return source;
+    }
+
+    // return the time taken at the start of this frame, timers use this so a
+    // whole frame of checks only reads the time once
+    public static double now() {
+        return stamp;
+    }
+
+    // take a new frame time, clocks do this on start and every tick
+    public static void stamp() {
+        stamp = time();
     }
 
     // instance vars -----------------------------------------------------------
@@ -21,21 +59,32 @@ public class Clock {
     // store the actual fps
     private double fps;
 
+    // smoothed milliseconds per frame, 0 until the first tick
+    private double frameTime;
+
     // default constructor
     public Clock() {
         startTime = 0;
         prevTime = 0;
         fps = 0;
+        frameTime = 0;
     }
 
-    // return the fps
+    // return the fps, from the smoothed frame time
     public double getFps() {
         return fps;
     }
 
+    // return the smoothed milliseconds per frame
+    public double getFrameTime() {
+        return frameTime;
+    }
+
     // log the current time
     public void start() {
-        startTime = prevTime = time();
+        stamp();
+        startTime = prevTime = stamp;
+        frameTime = 0;
     }
 
     // return elapsed time from last logged start time
@@ -55,103 +104,150 @@ public class Clock {
 
     // return the elapsed since the last tick call as scalar of fpsRate
     public double tick() {
-        double currTime = time();
-        double dt = currTime - prevTime;
-        fps = 1000 / dt;
-        dt /= FPS_RATE;
+        stamp();
+        double currTime = stamp;
+        double dt = Math.max(0, currTime - prevTime);
         prevTime = currTime;
 
-        return dt;
+        // one slow or fast frame shouldn't swing the estimate around
+        if (frameTime == 0) {
+            frameTime = dt;
+        }
+        else {
+            frameTime += (dt - frameTime) * SMOOTHING;
+        }
+        fps = frameTime > 0 ? 1000 / frameTime : 0;
+
+        return dt / FPS_RATE;
     }
 
-    // subclass ----------------------------------------------------------------
+    // subclasses --------------------------------------------------------------
 
+    // monotonic time from System.nanoTime, never goes backwards
+    public static class TimeSource {
+
+        // other methods -------------------------------------------------------
+
+        public long nanos() {
+            return System.nanoTime();
+        }
+    }
+
+    // time that only moves when told to, for headless runs and testing
+    public static class ManualTimeSource extends TimeSource {
+
+        // instance vars -------------------------------------------------------
+
+        private long now = 0;
+
+        // other methods -------------------------------------------------------
+
+        public long nanos() {
+            return now;
+        }
+
+        // move time forward
+        public void advance(double ms) {
+            if (ms < 0) {
+                throw new IllegalArgumentException("Time can't go backwards.");
+            }
+            now += (long) (ms * 1.0e6);
+        }
+    }
+
+    // timers live in slots, keys are just indexes so checks are array reads
     public static class Timer {
 
         // instance vars -------------------------------------------------------
 
-        // symbol timer that can hold timers for other objects
-        private ST<String, Double> timerDurations = new ST<>();
-        private ST<String, Double> timerPreviouses = new ST<>();
+        // durations and last check times, by key
+        private double[] durations = new double[8];
+        private double[] previouses = new double[8];
+        private boolean[] exists = new boolean[8];
 
         // other methods -------------------------------------------------------
 
         // check if a timer is done, if so, reset timer to now
-        public boolean checkTimer(String key) {
+        public boolean checkTimer(int key) {
             throwDNEError(key);
 
-            double time = time();
-            if (time - timerPreviouses.get(key) >= timerDurations.get(key)) {
-                timerPreviouses.put(key, time);
+            double time = now();
+            if (time - previouses[key] >= durations[key]) {
+                previouses[key] = time;
                 return true;
             }
             return false;
         }
 
         // silently check if a timer is done, don't reset the timer
-        public boolean silentCheckTimer(String key) {
+        public boolean silentCheckTimer(int key) {
             throwDNEError(key);
 
-            return time() - timerPreviouses.get(key) >= timerDurations.get(key);
+            return now() - previouses[key] >= durations[key];
         }
 
         // peek at a timer for the duration left
-        public double peekTimeLeft(String key) {
+        public double peekTimeLeft(int key) {
             throwDNEError(key);
 
-            double timeLeft = time() - timerPreviouses.get(key);
-            return Math.min(timeLeft, timerDurations.get(key));
+            double timeLeft = now() - previouses[key];
+            return Math.min(timeLeft, durations[key]);
         }
 
         // add a timer
-        public void addTimer(String key) {
-            if (!timerDurations.contains(key)) {
-                timerDurations.put(key, 0.0);
-                timerPreviouses.put(key, time());
-            }
+        public void addTimer(int key) {
+            addTimer(key, 0.0);
         }
 
         // add a timer with a duration
-        public void addTimer(String key, double duration) {
-            if (!timerDurations.contains(key)) {
-                timerDurations.put(key, duration);
-                timerPreviouses.put(key, time());
+        public void addTimer(int key, double duration) {
+            if (key < 0) {
+                throw new IllegalArgumentException("Timer keys can't be negative.");
+            }
+            if (key >= exists.length) {
+                int cap = Math.max(key + 1, exists.length * 2);
+                durations = Arrays.copyOf(durations, cap);
+                previouses = Arrays.copyOf(previouses, cap);
+                exists = Arrays.copyOf(exists, cap);
+            }
+            if (!exists[key]) {
+                exists[key] = true;
+                durations[key] = duration;
+                previouses[key] = now();
             }
         }
 
         // remove a timer
-        public void removeTimer(String key) {
+        public void removeTimer(int key) {
             throwDNEError(key);
 
-            timerDurations.remove(key);
-            timerPreviouses.remove(key);
+            exists[key] = false;
         }
 
         // set a last call time for a timer
-        public void setCheck(String key) {
+        public void setCheck(int key) {
             throwDNEError(key);
 
-            timerPreviouses.put(key, time());
+            previouses[key] = now();
         }
 
         // change a duration for a timer
-        public void changeDuration(String key, double duration) {
+        public void changeDuration(int key, double duration) {
             throwDNEError(key);
 
-
-            timerDurations.put(key, duration);
+            durations[key] = duration;
         }
 
         // randomize a duration
-        public void randomizeDuration(String key, double scale, double base) {
+        public void randomizeDuration(int key, double scale, double base) {
             throwDNEError(key);
 
-            timerDurations.put(key, StdRandom.uniform() * (scale - base) + base);
+            durations[key] = StdRandom.uniform() * (scale - base) + base;
         }
 
         // called in most methods to throw appropriate errors
-        private void throwDNEError(String key) {
-            if (!timerDurations.contains(key)) {
+        private void throwDNEError(int key) {
+            if (key < 0 || key >= exists.length || !exists[key]) {
                 String TIMER_DNE_ERROR = "Timer does not exist.";
                 throw new IllegalArgumentException(TIMER_DNE_ERROR);
             }
@@ -160,5 +256,15 @@ public class Clock {
 
 
     public static void main(String[] args) {
+        ManualTimeSource manual = new ManualTimeSource();
+        Clock.setTimeSource(manual);
+
+        Clock clock = new Clock();
+        clock.start();
+        for (int i = 0; i < 10; i++) {
+            manual.advance(i % 2 == 0 ? 15 : 18);
+            StdOut.println(clock.tick() + " " + clock.getFrameTime());
+        }
+        StdOut.println(clock.getFps());
     }
 }
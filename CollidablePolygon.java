@@ -8,6 +8,9 @@ public class CollidablePolygon extends BasePolygon {
     // axis aligned bounding box for cheap collision detection
     protected Rectangle aabb;
 
+    // rotations make the box stale, it gets refit the next time it's needed
+    private boolean aabbDirty = false;
+
     // constructors ------------------------------------------------------------
 
     // default constructor
@@ -28,13 +31,18 @@ public class CollidablePolygon extends BasePolygon {
 
     // constructor for a polygon using a base polygon
     public CollidablePolygon(BasePolygon b) {
-        super(b.verts);
-        aabb = new Rectangle(b.verts);
+        super(b.getVerts());
+        aabb = new Rectangle(b.getVerts());
     }
 
     // getters -----------------------------------------------------------------
 
     public Rectangle getAabb() {
+        if (aabbDirty) {
+            ensureWorld();
+            aabb.reencompass(vertX, vertY);
+            aabbDirty = false;
+        }
         return aabb;
     }
 
@@ -42,76 +50,83 @@ public class CollidablePolygon extends BasePolygon {
 
     public void setAabb(Rectangle aabb) {
         this.aabb = new Rectangle(aabb);
+        aabbDirty = false;
     }
 
     // other methods -----------------------------------------------------------
 
     // cheap axis aligned bounding box collision test
     public boolean aabbCollide(Rectangle other) {
-        return aabb.collide(other);
+        return getAabb().collide(other);
     }
 
     // return bounding box area
     public double aabbArea() {
-        return aabb.area();
+        return getAabb().area();
     }
 
     // collision function with another polygon
     // got the idea from n tutorial a referenec
     public Vector collide(CollidablePolygon otherPoly) {
+        Vector mtv = new Vector();
+        collide(otherPoly, mtv);
+        return mtv;
+    }
+
+    // collision function that writes the mtv into out, returns true on a hit
+    public boolean collide(CollidablePolygon otherPoly, Vector out) {
         // cheap test bounding boxes
-        if (!aabbCollide(otherPoly.aabb)) {
-            return new Vector();
+        if (!aabbCollide(otherPoly.getAabb())) {
+            out.zero();
+            return false;
         }
 
         // expensive polygonal collision otherwise
-        return super.collide(otherPoly);
+        return super.collide(otherPoly, out);
+    }
+
+    // refit the box too, collide reads it first
+    public void prepare() {
+        super.prepare();
+        getAabb();
     }
 
     // rotate method
     public void rotate(double degrees) {
         super.rotate(degrees);
-        aabb.reencompass(verts);
-        generateVectors();
+        aabbDirty = true;
     }
 
-    // translate method
+    // translate method, recenter goes through this too
     public void translate(double dx, double dy) {
         super.translate(dx, dy);
-        aabb.translate(dx, dy);
-        generateVectors();
-    }
-
-    // translate method with vector
-    public void translate(Vector v) {
-        super.translate(v);
-        aabb.translate(v.x, v.y);
-        generateVectors();
-    }
-
-    // recenter method
-    public void recenter(double x, double y) {
-        super.recenter(x, y);
-        aabb.reencompass(verts);
+        if (!aabbDirty) {
+            aabb.translate(dx, dy);
+        }
     }
 
-    // recenter method with a point
-    public void recenter(Point p) {
-        super.recenter(p.x, p.y);
-        aabb.reencompass(verts);
+    // set transform method, a pure move can still shift the aabb
+    public void setTransform(double x, double y, double degrees) {
+        if (degrees != getAngle()) {
+            aabbDirty = true;
+        }
+        else if (!aabbDirty) {
+            aabb.translate(x - centerX(), y - centerY());
+        }
+        super.setTransform(x, y, degrees);
     }
 
     // debug drawing method
     public void drawDebug(Vector scroll) {
         super.drawDebug(scroll);
-        aabb.drawDebug(scroll);
+        getAabb().drawDebug(scroll);
     }
 
     public String toString() {
         StringBuilder info = new StringBuilder();
 
         info.append("Verts: ");
-        for (Point p : verts) {
+        for (Point p : getVerts()) {
             info.append(String.format("(%.1f, %.1f), ", p.x, p.y));
         }
 
@@ -119,6 +134,7 @@ public class CollidablePolygon extends BasePolygon {
     }
 
     public static void defaultTest() {
+        Renderer renderer = Renderer.current();
 
         double scale = Constants.SCALE;
         CollidablePolygon a = new CollidablePolygon(BasePolygon.genShape(3, scale * 0.2));
@@ -138,7 +154,7 @@ public class CollidablePolygon extends BasePolygon {
 
             StdDraw.clear();
 
-            StdDraw.setPenColor(Color.BLACK);
+            renderer.setColor(Color.BLACK);
 
             if (StdDraw.hasNextKeyTyped()) {
                 if (StdDraw.isKeyPressed(KeyEvent.VK_W)) {
@@ -165,10 +181,10 @@ public class CollidablePolygon extends BasePolygon {
             b.drawDebug(scroll);
 
             // test aabb collision
-            if (a.aabbCollide(b.aabb)) {
-                StdDraw.setPenColor(Color.RED);
-                a.aabb.draw(scroll);
-                b.aabb.draw(scroll);
+            if (a.aabbCollide(b.getAabb())) {
+                renderer.setColor(Color.RED);
+                a.getAabb().draw(scroll);
+                b.getAabb().draw(scroll);
             }
 
             Vector mtv = a.collide(b);
@@ -177,12 +193,13 @@ public class CollidablePolygon extends BasePolygon {
                 b.drawOutline(scroll, Color.BLUE);
             }
 
-            StdDraw.show();
+            renderer.flush();
         }
 
     }
 
     public static void nTest(int n) {
+        Renderer renderer = Renderer.current();
 
         CollidablePolygon[] polys = new CollidablePolygon[n];
 
@@ -239,10 +256,10 @@ public class CollidablePolygon extends BasePolygon {
             for (int i = 0; i < n - 1; i++) {
                 for (int j = i + 1; j < n; j++) {
 
-                    if (polys[i].aabbCollide(polys[j].aabb)) {
-                        StdDraw.setPenColor(Color.RED);
-                        polys[i].aabb.draw(scroll);
-                        polys[j].aabb.draw(scroll);
+                    if (polys[i].aabbCollide(polys[j].getAabb())) {
+                        renderer.setColor(Color.RED);
+                        polys[i].getAabb().draw(scroll);
+                        polys[j].getAabb().draw(scroll);
                     }
 
                     Vector mtv = polys[i].collide(polys[j]);
@@ -253,12 +270,12 @@ public class CollidablePolygon extends BasePolygon {
                         polys[j].drawOutline(scroll, Color.BLUE);
                     }
 
-                    StdDraw.setPenColor(Color.BLACK);
+                    renderer.setColor(Color.BLACK);
                 }
             }
 
 
-            StdDraw.show();
+            renderer.flush();
         }
 
     }
@@ -268,7 +285,7 @@ public class CollidablePolygon extends BasePolygon {
         double scale = 100;
         StdDraw.setScale(0, scale);
         StdDraw.enableDoubleBuffering();
-        StdDraw.setPenRadius(0.005);
+        Renderer.current().setPenRadius(0.005);
 
         if (args.length > 0) {
             nTest(Integer.parseInt(args[0]));
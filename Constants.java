@@ -47,14 +47,27 @@ public class Constants {
     public static final char ENEMY_TAG = 'E';
     public static final char ASTEROID_TAG = 'A';
 
-    public static final String RESPAWN_KEY = "respawn";
-    public static final String INVULN_KEY = "invuln";
-    public static final String SHOOT_KEY = "shoot";
-    public static final String RELOAD_KEY = "reload";
-    public static final String EXHAUST_KEY = "exhaust";
+    // entity kinds, each one is a row and column of the collision layers
+    public static final int PLAYER_KIND = 0;
+    public static final int ENEMY_KIND = 1;
+    public static final int ASTEROID_KIND = 2;
+    public static final int BUFF_KIND = 3;
+    public static final int BULLET_KIND = 4;
+    public static final int NUM_KINDS = 5;
+
+    // timer slots, each one is an index into a Clock.Timer
+    public static final int RESPAWN_KEY = 0;
+    public static final int INVULN_KEY = 1;
+    public static final int SHOOT_KEY = 2;
+    public static final int RELOAD_KEY = 3;
+    public static final int EXHAUST_KEY = 4;
 
     public static final int PLAYER_EXPLOSTION_DMG = 100;
 
+    // fixed timestep, a 60th of a second in clock tick units (ms / 60)
+    public static final double FIXED_DT = 1000.0 / 60 / 60;
+    public static final int MAX_STEPS_PER_FRAME = 5;
+
     public static void main(String[] args) {
     }
 }
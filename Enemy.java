@@ -48,10 +48,10 @@ public class Enemy extends Entity {
         dmg = 10 + mins;
         hp = 45;
         hp += 1.1 * mins;
-        head = poly.verts[0];
         poly.recenter(x, y);
         range = size + 30;
         tag = Constants.ENEMY_TAG;
+        kind = Constants.ENEMY_KIND;
         setPoints(hp / 2 + mins * 1.25);
         dropChance = Math.min(1, 0.1 + 0.3 * mins);
         homeChance = 0.0;
@@ -109,6 +109,7 @@ public class Enemy extends Entity {
         else {
             b = shootNormal();
         }
+        b.setOwner(this);
         ammo--;
         TIMER.setCheck(Constants.SHOOT_KEY);
         vel.subtract(Vector.scale(b.vel, b.area() * 2 / area()));
@@ -117,7 +118,7 @@ public class Enemy extends Entity {
 
     public Bullet shootNormal() {
         double inaccuracy = StdRandom.uniform() * missAngle - missAngle / 2;
-        Bullet b = new Bullet(head, rotation + inaccuracy, projSpd, dmg, tag,
+        Bullet b = new Bullet(getHead(), rotation + inaccuracy, projSpd, dmg, tag,
                               Constants.ENEMY_GLOW);
         return b;
     }
@@ -125,7 +126,7 @@ public class Enemy extends Entity {
     // shoot homing method
     public Homing shootHoming() {
         double inaccuracy = StdRandom.uniform() * missAngle - missAngle / 2;
-        Homing h = new Homing(head, rotation + inaccuracy, projSpd, dmg, tag,
+        Homing h = new Homing(getHead(), rotation + inaccuracy, projSpd, dmg, tag,
                               Constants.ENEMY_GLOW, 90);
         h.setTarget(target);
         h.setHomeWeight(20);
@@ -224,18 +225,19 @@ public class Enemy extends Entity {
         super.draw(scroll);
 
         // draw line behind
-        StdDraw.setPenColor(Constants.PRIMARY_COLOR);
+        Renderer.current().setColor(Constants.PRIMARY_COLOR);
         double cos = Math.cos(Math.toRadians(rotation));
         double sin = Math.sin(Math.toRadians(rotation));
         double d = getRadius() * 2;
         double l = getRadius() / 2;
+        Point head = getHead();
         Point p1 = new Point(head.x - d * cos - l * sin,
                              head.y - d * sin + l * cos);
         Point p2 = new Point(head.x - d * cos + l * sin,
                              head.y - d * sin - l * cos);
         p1.subtract(scroll);
         p2.subtract(scroll);
-        StdDraw.line(p1.x, p1.y, p2.x, p2.y);
+        Renderer.current().line(p1.x, p1.y, p2.x, p2.y);
     }
 
     public static void main(String[] args) {
@@ -46,14 +46,27 @@ public class Entity {
 
     // differentiating entities
     protected char tag;
-
-    // head pointer
-    protected Point head;
+    protected int kind;
 
     // points for killing this entity
     protected double points;
 
     protected ArrayList<Buff> buffs = new ArrayList<>();
+
+    // slot in an entity store, -1 when it isn't in one
+    protected int storeId = -1;
+
+    // pose before the last step, NaN until the first one
+    protected double prevX = Double.NaN;
+    protected double prevY = Double.NaN;
+    protected double prevAngle = Double.NaN;
+
+    // the real angle while the polygon is turned back for drawing, NaN when
+    // it isn't
+    private double heldAngle = Double.NaN;
+
+    // what lerpScroll hands back, reused every frame
+    private Vector lerped = new Vector();
     protected Clock.Timer TIMER;
 
     // constructors ------------------------------------------------------------
@@ -91,7 +104,6 @@ public class Entity {
         sides = poly.getN();
         rotation = 0;
         hpStat = hp;
-        head = poly.verts[0];
         dropChance = 0;
         points = 0;
     }
@@ -102,6 +114,10 @@ public class Entity {
         return tag;
     }
 
+    public int getKind() {
+        return kind;
+    }
+
     public double getHpStat() {
         return hpStat;
     }
@@ -134,8 +150,9 @@ public class Entity {
         return new Vector(vel);
     }
 
+    // the head is always the first vertex of the polygon
     public Point getHead() {
-        return new Point(head);
+        return poly.getVertex(0);
     }
 
     // setters -----------------------------------------------------------------
@@ -168,10 +185,6 @@ public class Entity {
         this.tag = tag;
     }
 
-    public void setHead(Point head) {
-        this.head = new Point(head);
-    }
-
     public void setPoints(double points) {
         this.points = points;
     }
@@ -184,7 +197,7 @@ public class Entity {
         poly.recenter(p);
     }
 
-    public void setTimerDuration(String key, double duration) {
+    public void setTimerDuration(int key, double duration) {
         TIMER.changeDuration(key, duration);
     }
 
@@ -222,7 +235,14 @@ public class Entity {
 
     // return the minimum translation vector for this collision
     public Vector collide(Entity e) {
-        return poly.collide(e.poly);
+        Vector mtv = new Vector();
+        collide(e, mtv);
+        return mtv;
+    }
+
+    // write the minimum translation vector into out, returns true on a hit
+    public boolean collide(Entity e, Vector out) {
+        return poly.collide(e.poly, out);
     }
 
     // drop all buffs
@@ -249,6 +269,52 @@ public class Entity {
         }
     }
 
+    // remember where the entity is before a step for interpolated drawing
+    public void savePrevious() {
+        prevX = poly.centerX();
+        prevY = poly.centerY();
+        prevAngle = poly.getAngle();
+    }
+
+    // return a scroll that draws the entity alpha of the way from where it
+    // was before the last step to where it is now, only good until the next
+    // call since the vector gets reused
+    public Vector lerpScroll(Vector scroll, double alpha) {
+        if (alpha >= 1 || Double.isNaN(prevX)) {
+            return scroll;
+        }
+        double back = 1 - alpha;
+        lerped.zero();
+        lerped.x = scroll.x + (poly.centerX() - prevX) * back;
+        lerped.y = scroll.y + (poly.centerY() - prevY) * back;
+        return lerped;
+    }
+
+    // turn the polygon alpha of the way from its angle before the last step
+    // to its angle now, the short way round, restoreAngle has to follow once
+    // it's drawn
+    public void lerpAngle(double alpha) {
+        if (alpha >= 1 || Double.isNaN(prevAngle)) {
+            return;
+        }
+        double angle = poly.getAngle();
+        double back = Math.IEEEremainder(angle - prevAngle, 360) * (1 - alpha);
+        if (back == 0) {
+            return;
+        }
+        heldAngle = angle;
+        poly.setTransform(poly.centerX(), poly.centerY(), angle - back);
+    }
+
+    // put the polygon back to its real angle after lerpAngle
+    public void restoreAngle() {
+        if (Double.isNaN(heldAngle)) {
+            return;
+        }
+        poly.setTransform(poly.centerX(), poly.centerY(), heldAngle);
+        heldAngle = Double.NaN;
+    }
+
     // modify vel
     public void modifyVel(Vector v) {
         vel.add(v);
@@ -295,8 +361,8 @@ public class Entity {
         }
     }
 
-    public ArrayList<VFX.Effect> genBuffParticles() {
-        ArrayList<VFX.Effect> particles = new ArrayList<>();
+    // now and then give off a glow in each buff's color
+    public void genBuffParticles(VFX vfx) {
         double chance = Constants.BASE_BUFF_PARTICLE_CHANCE / buffs.size();
         for (Buff b : buffs) {
             if (StdRandom.uniform() < chance) {
@@ -304,10 +370,9 @@ public class Entity {
                 double degrees = StdRandom.uniform() * 360;
                 Vector vel = Vector.genVector(mag, degrees);
                 double size = StdRandom.uniform() * 0.5 + 0.5;
-                particles.add(new VFX.Glow(center(), vel, size, b.glow));
+                vfx.addGlow(center(), vel, size, b.glow);
             }
         }
-        return particles;
     }
 
     // draw method
@@ -1,7 +1,25 @@
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class EntityHandler {
 
+    // static vars -------------------------------------------------------------
+
+    // which kinds of entities can touch in collideEntities, bullets are
+    // handled on their own in handleProjectiles
+    private static final boolean[][] LAYERS =
+            new boolean[Constants.NUM_KINDS][Constants.NUM_KINDS];
+
+    static {
+        int[] solid = { Constants.PLAYER_KIND, Constants.ENEMY_KIND,
+                        Constants.ASTEROID_KIND, Constants.BUFF_KIND };
+        for (int a : solid) {
+            for (int b : solid) {
+                LAYERS[a][b] = true;
+            }
+        }
+    }
+
     // instance vars -----------------------------------------------------------
 
     // researched java arraylists
@@ -27,14 +45,49 @@ public class EntityHandler {
     // store vfx object
     private VFX vfx;
 
+    // cuts down the pairs tested in collideEntities
+    private Broadphase broadphase;
+
+    // reused for every narrow phase test so they don't allocate
+    private Vector mtv = new Vector();
+
+    // buffs picked up this tick, taken out of the lists after collisions
+    private ArrayList<Buff> pickedUp = new ArrayList<>();
+
+    // indexes for projectiles, rebuilt at the start of handleProjectiles
+    private ArrayList<Entity> targets = new ArrayList<>();
+    private Broadphase targetIndex = new Broadphase.SpatialHash();
+    private Broadphase projectileIndex = new Broadphase.SpatialHash();
+
+    // optional struct of arrays copy of the asteroids, null when not used
+    private EntityStore store;
+
+    // tests every candidate pair up front, on several threads for big
+    // lists, null to test and resolve pairs one at a time instead
+    private NarrowPhase narrowPhase;
+
+    // entities pushed by a contact this tick, their other contacts are stale
+    private boolean[] moved = new boolean[64];
+
+    // phase times and per frame counts, particles spawned are counted off
+    // the effects' running total
+    private Profiler profiler = new Profiler();
+    private long lastSpawned;
+
     // constructors ------------------------------------------------------------
 
     // constructor
     public EntityHandler(Player p) {
+        this(p, new Broadphase.SpatialHash());
+    }
+
+    // constructor with a chosen broadphase
+    public EntityHandler(Player p, Broadphase broadphase) {
         // store pointer to player and add to entity list
         this.p = p;
         entities.add(p);
         vfx = new VFX();
+        this.broadphase = broadphase;
     }
 
     // getters -----------------------------------------------------------------
@@ -43,6 +96,45 @@ public class EntityHandler {
         return enemies.size();
     }
 
+    public int getNumberOfAsteroids() {
+        return asteroids.size();
+    }
+
+    public int getNumberOfProjectiles() {
+        return projectiles.size();
+    }
+
+    // the player, asteroids, enemies and pickups, projectiles not included
+    public int getNumberOfEntities() {
+        return entities.size();
+    }
+
+    public VFX getVFX() {
+        return vfx;
+    }
+
+    public Profiler getProfiler() {
+        return profiler;
+    }
+
+    // setters -----------------------------------------------------------------
+
+    // run asteroid movement, culling and blasts through a store, or pass
+    // null to go back to updating the entities one by one
+    public void setEntityStore(EntityStore store) {
+        this.store = store;
+        if (store != null) {
+            store.clear();
+            store.addAll(asteroids);
+        }
+    }
+
+    // detect every contact first then resolve them in order, or pass null
+    // to go back to detecting and resolving one pair at a time
+    public void setNarrowPhase(NarrowPhase narrowPhase) {
+        this.narrowPhase = narrowPhase;
+    }
+
     // other methods -----------------------------------------------------------
 
     // restart method
@@ -54,6 +146,9 @@ public class EntityHandler {
         enemies.clear();
         buffs.clear();
         projectiles.clear();
+        if (store != null) {
+            store.clear();
+        }
         vfx.clear();
         this.p = p;
     }
@@ -63,24 +158,49 @@ public class EntityHandler {
         vfx.genExplosion(e.center(), e.getRadius() * 1.5);
     }
 
-    // handle projectile collide
-    private void resolveProjectileCollision(Bullet b, Entity e) {
-        Vector mtv = b.collide(e);
-        if (mtv.isNonZero() && b.tag != e.tag) {
-            int sparks = StdRandom.uniform(3, 6);
-            Vector sparkV = new Vector(b.vel);
-            sparkV.clamp(1);
-            vfx.addSparks(sparks, b.center(), sparkV, 90);
+    // handle projectile collide, returns true if anything got pushed around
+    private boolean resolveProjectileCollision(Bullet b, Entity e) {
+        // a fresh bullet still overlaps the ship that fired it, at small
+        // steps it would be used up before it could leave
+        if (e == b.getOwner()) {
+            return false;
+        }
 
-            Entity.resolveCollision(e, b, mtv);
-            if (!e.isDead()) {
-                e.damage(b.dmg);
-            }
+        profiler.count(Profiler.SAT_TESTS, 1);
+        if (!b.collide(e, mtv)) {
+            return false;
         }
+        profiler.count(Profiler.SAT_HITS, 1);
+
+        // a bullet is used up on its own side too, it just does no damage
+        if (b.tag == e.tag) {
+            return false;
+        }
+
+        int sparks = StdRandom.uniform(3, 6);
+        Vector sparkV = new Vector(b.vel);
+        sparkV.clamp(1);
+        vfx.addSparks(sparks, b.center(), sparkV, 90);
+
+        Entity.resolveCollision(e, b, mtv);
+        touched(e);
+        if (!e.isDead()) {
+            e.damage(b.dmg);
+        }
+        return true;
     }
 
     // move and collide projectiles
     private void handleProjectiles(double dt, Rectangle bounds) {
+        // index everything bullets can hit once for the whole tick, the
+        // player goes first so candidates come out in the old test order
+        targets.clear();
+        targets.add(p);
+        targets.addAll(asteroids);
+        targets.addAll(enemies);
+        targetIndex.rebuild(targets);
+        projectileIndex.rebuild(projectiles);
+
         for (int i = 0; i < projectiles.size(); i++) {
             Bullet b1 = projectiles.get(i);
 
@@ -98,51 +218,58 @@ public class EntityHandler {
             b1.update(dt);
             b1.homeOnTarget(entities, dt);
 
-            // collide with player
-            if (!p.isDead()) {
-                resolveProjectileCollision(b1, p);
-                if (p.isDead()) {
-                    genExplosions(p);
+            // collide with the player, asteroids and enemies, in that order
+            int count = targetIndex.query(b1.poly.getAabb(), -1);
+            profiler.count(Profiler.PAIRS, count);
+            for (int k = 0; k < count; k++) {
+                int id = targetIndex.getCandidate(k);
+                Entity e = targets.get(id);
+                if (e.isDead()) {
+                    continue;
                 }
-            }
 
-            // collide with asteroids
-            for (Asteroid a : asteroids) {
-                if (a.isDead()) {
+                if (!resolveProjectileCollision(b1, e)) {
                     continue;
                 }
-                resolveProjectileCollision(b1, a);
-                if (a.isDead() && b1.tag == Constants.PLAYER_TAG &&
-                        !p.isDead()) {
-                    p.increaseScore(a.getPoints());
-                    genExplosions(a);
-                    p.heal(a.area() * 0.05);
-                }
-            }
 
-            // collide with enemies
-            for (Enemy e : enemies) {
-                if (e.isDead()) {
-                    continue;
+                if (e == p) {
+                    if (p.isDead()) {
+                        genExplosions(p);
+                    }
                 }
-                resolveProjectileCollision(b1, e);
-                if (e.isDead() && b1.tag == Constants.PLAYER_TAG &&
+                else if (e.isDead() && b1.tag == Constants.PLAYER_TAG &&
                         !p.isDead()) {
                     p.increaseScore(e.getPoints());
                     genExplosions(e);
-                    p.heal(e.area() * 0.25);
+                    if (e.getTag() == Constants.ASTEROID_TAG) {
+                        p.heal(e.area() * 0.05);
+                    }
+                    else {
+                        p.heal(e.area() * 0.25);
+                    }
                 }
+
+                // both got pushed, so look again past this target
+                targetIndex.update(id);
+                count = targetIndex.query(b1.poly.getAabb(), id);
+                profiler.count(Profiler.PAIRS, count);
+                k = -1;
             }
 
-            // collide with other projectiles
-            for (int j = i + 1; j < projectiles.size(); j++) {
-                Bullet b2 = projectiles.get(j);
+            // collide with other projectiles, the ones after this bullet
+            // haven't moved yet this tick so the index is still accurate
+            count = projectileIndex.query(b1.poly.getAabb(), i);
+            profiler.count(Profiler.PAIRS, count);
+            for (int k = 0; k < count; k++) {
+                Bullet b2 = projectiles.get(projectileIndex.getCandidate(k));
 
                 if (b1 == b2 || b1.getTag() == b2.getTag()) {
                     continue;
                 }
 
+                profiler.count(Profiler.SAT_TESTS, 1);
                 if (b1.collide(b2)) {
+                    profiler.count(Profiler.SAT_HITS, 1);
                     b1.die();
                     b2.die();
                     int sparks = StdRandom.uniform(2, 3);
@@ -190,7 +317,11 @@ public class EntityHandler {
             Point pc = p.center();
             for (Entity e : entities) {
                 // don't destroy buffs
-                if (buffs.contains(e)) {
+                if (isBuff(e)) {
+                    continue;
+                }
+                // the store handles asteroids in one pass below
+                if (store != null && isAsteroid(e)) {
                     continue;
                 }
                 Vector dist = new Vector(pc, e.center());
@@ -201,6 +332,19 @@ public class EntityHandler {
                     genExplosions(e);
                 }
             }
+            if (store != null) {
+                store.sync();
+                int hit = store.blast(pc.x, pc.y, Constants.SCALE * 0.5,
+                                      Constants.PLAYER_EXPLOSTION_DMG);
+                for (int k = 0; k < hit; k++) {
+                    Entity e = store.get(store.getHit(k));
+                    Vector dist = new Vector(pc, e.center());
+                    dist.clamp(5);
+                    e.modifyVel(dist);
+                    store.touch(e);
+                    genExplosions(e);
+                }
+            }
             for (Bullet b : projectiles) {
                 Vector dist = new Vector(pc, b.center());
                 if (dist.norm() <= Constants.SCALE * 0.5) {
@@ -254,16 +398,30 @@ public class EntityHandler {
         // store children from asteroids
         ArrayList<Asteroid> children = new ArrayList<>();
 
+        // move the asteroids in one go when there is a store
+        if (store != null) {
+            store.sync();
+            store.cull(bounds);
+            store.integrate(dt);
+            store.push();
+        }
+
         // update try to spawn more asteroids
-        for (Asteroid a : asteroids) {
+        for (int id = 0; id < asteroids.size(); id++) {
+            Asteroid a = asteroids.get(id);
+
+            if (store == null) {
+                // check if asteroid is out of bounds, kill it if so
+                if (!bounds.contains(a.center())) {
+                    a.die();
+                    continue;
+                }
 
-            // check if asteroid is out of bounds, kill it if so
-            if (!bounds.contains(a.center())) {
-                a.die();
+                a.update(dt);
+            }
+            else if (store.isCulled(id)) {
                 continue;
             }
-
-            a.update(dt);
             // check if asteroid is dead and will spawn more
             if (a.isDead() && a.canSpawn()) {
                 ArrayList<Asteroid> nchildren = Asteroid.genChildren(a);
@@ -274,8 +432,7 @@ public class EntityHandler {
                     for (int j = 0; j < children.size(); j++) {
                         Asteroid ch2 = children.get(j);
 
-                        Vector mtv = ch1.collide(ch2);
-                        if (mtv.isNonZero()) {
+                        if (ch1.collide(ch2, mtv)) {
                             ch1.translate(Vector.scale(mtv, 0.5));
                             ch2.translate(Vector.scale(mtv, -0.5));
                         }
@@ -294,29 +451,126 @@ public class EntityHandler {
         // add all children
         entities.addAll(children);
         asteroids.addAll(children);
+        if (store != null) {
+            store.addAll(children);
+        }
+    }
+
+    private boolean isBuff(Entity e) {
+        return e.getKind() == Constants.BUFF_KIND;
+    }
+
+    private boolean isAsteroid(Entity e) {
+        return e.getKind() == Constants.ASTEROID_KIND;
     }
 
     private boolean canObtainBuff(Entity probEntity, Entity probBuff) {
-        return buffs.contains(probBuff) && !buffs.contains(probEntity) &&
-                probEntity.area() >= 10;
+        return isBuff(probBuff) && !((Buff) probBuff).isPickedUp() &&
+                !isBuff(probEntity) && probEntity.area() >= 10;
     }
 
     private boolean asteroidBuffCollide(Entity a, Entity b) {
-        if (asteroids.contains(a) && buffs.contains(b) && a.area() >= 10) {
+        if (isAsteroid(a) && isBuff(b) && a.area() >= 10) {
             return true;
         }
-        else if (asteroids.contains(b) && buffs.contains(a) && a.area() >= 10) {
+        else if (isAsteroid(b) && isBuff(a) && a.area() >= 10) {
             return true;
         }
         return false;
     }
 
-    private boolean asteroidsContains(Entity a, Entity b) {
-        return asteroids.contains(a) || asteroids.contains(b);
+    // return if a pair would do anything when touching, checked before the
+    // narrow phase so pairs that get ignored are never tested
+    private boolean canTouch(Entity a, Entity b) {
+        if (!LAYERS[a.getKind()][b.getKind()]) {
+            return false;
+        }
+
+        // asteroids only pick up buffs, or bump them when big enough
+        if ((isAsteroid(a) && isBuff(b)) || (isAsteroid(b) && isBuff(a))) {
+            return canObtainBuff(b, a) || canObtainBuff(a, b) ||
+                    asteroidBuffCollide(a, b);
+        }
+        return true;
+    }
+
+    // handle a pair of entities that are touching, canTouch already passed
+    private void resolveContact(Entity a, Entity b, Vector mtv) {
+        // anything below can change them, the store copies them in later
+        touched(a);
+        touched(b);
+
+        // apply buff if a or b is a pickup
+        if (canObtainBuff(b, a)) {
+            pickUp(b, (Buff) a);
+            return;
+        }
+        else if (canObtainBuff(a, b)) {
+            pickUp(a, (Buff) b);
+            return;
+        }
+
+        // resolve
+        Entity.resolveCollision(a, b, mtv);
+
+        // don't do anything cool to buffs
+        if (isBuff(a) || isBuff(b)) {
+            return;
+        }
+
+        int sparks = StdRandom.uniform(5, 8);
+        Vector dist = new Vector(a.center(), b.center());
+        dist.scale(0.5);
+        Point contact = new Point(a.center(), dist);
+        dist.clamp(0.75);
+        vfx.addSparks(sparks, contact, dist, 360);
+
+        // same types can't hurt each other
+        if (a.getTag() == b.getTag()) {
+            return;
+        }
+
+        // damage both entities
+        double dmgToA = b.area() / 2 * (b.vel.norm() - a.vel.norm());
+        double dmgToB = a.area() / 2 * (a.vel.norm() - b.vel.norm());
+
+        a.damage(Math.abs(dmgToA));
+        b.damage(Math.abs(dmgToB));
+        if (a.isDead()) {
+            genExplosions(a);
+            if (a != p) {
+                entities.addAll(a.dropBuffs());
+                buffs.addAll(a.dropBuffs());
+            }
+            if (b == p) {
+                p.increaseScore(a.getPoints());
+            }
+        }
+        else if (b.isDead()) {
+            genExplosions(b);
+            if (b != p) {
+                entities.addAll(b.dropBuffs());
+                buffs.addAll(b.dropBuffs());
+            }
+            if (a == p) {
+                p.increaseScore(b.getPoints());
+            }
+        }
+    }
+
+    // tell the store an entity changed outside it
+    private void touched(Entity e) {
+        if (store != null) {
+            store.touch(e);
+        }
     }
 
-    private boolean buffsContains(Entity a, Entity b) {
-        return buffs.contains(a) || buffs.contains(b);
+    // give a buff to an entity
+    private void pickUp(Entity e, Buff b) {
+        e.addBuff(b);
+        b.setPickedUp(true);
+        pickedUp.add(b);
+        vfx.addPulse(b.center(), 5, b.glow);
     }
 
     // collide all entities
@@ -324,8 +578,29 @@ public class EntityHandler {
         entities.removeIf(e -> e.isDead() && e != p);
         buffs.removeIf(Entity::isDead);
 
-        ArrayList<Buff> pickedUp = new ArrayList<>();
+        broadphase.rebuild(entities);
 
+        if (narrowPhase == null) {
+            collidePairs();
+        }
+        else {
+            detectContacts();
+            resolveContacts();
+        }
+
+        // remove all buffs that were picked up
+        if (!pickedUp.isEmpty()) {
+            entities.removeIf(e -> isBuff(e) && ((Buff) e).isPickedUp());
+            buffs.removeIf(Buff::isPickedUp);
+            for (Buff b : pickedUp) {
+                b.setPickedUp(false);
+            }
+            pickedUp.clear();
+        }
+    }
+
+    // test and resolve one pair at a time, later tests see earlier pushes
+    private void collidePairs() {
         // collide everything against each other
         for (int i = 0; i < entities.size() - 1; i++) {
             Entity a = entities.get(i);
@@ -333,87 +608,107 @@ public class EntityHandler {
             if ((a == p && p.isDead()) || (a.isDead())) {
                 continue;
             }
-            for (int j = i + 1; j < entities.size(); j++) {
+
+            // only test the entities the broadphase says might be touching
+            int count = broadphase.query(i, i);
+            profiler.count(Profiler.PAIRS, count);
+            for (int k = 0; k < count; k++) {
+                int j = broadphase.getCandidate(k);
                 Entity b = entities.get(j);
-                if (b.isDead()) {
+                if (b.isDead() || !canTouch(a, b)) {
                     continue;
                 }
 
                 // collide
-                Vector mtv = a.collide(b);
-                if (mtv.isNonZero()) {
-                    // apply buff if a or b is a pickup to non-asteroids
-                    if (!pickedUp.contains(a) && canObtainBuff(b, a)) {
-                        b.addBuff((Buff) a);
-                        pickedUp.add((Buff) a);
-                        vfx.addPulse(a.center(), 5, ((Buff) a).glow);
-                        continue;
+                profiler.count(Profiler.SAT_TESTS, 1);
+                if (a.collide(b, mtv)) {
+                    profiler.count(Profiler.SAT_HITS, 1);
+                    int size = entities.size();
+                    resolveContact(a, b, mtv);
+
+                    // keep the broadphase in step with whatever moved, drops
+                    // can move buffs around so just rebuild for those
+                    if (entities.size() != size) {
+                        broadphase.rebuild(entities);
                     }
-                    else if (!pickedUp.contains(b) && canObtainBuff(a, b)) {
-                        a.addBuff((Buff) b);
-                        pickedUp.add((Buff) b);
-                        vfx.addPulse(b.center(), 5, ((Buff) b).glow);
-                        continue;
+                    else {
+                        broadphase.update(i);
+                        broadphase.update(j);
                     }
 
-                    if (asteroidsContains(a, b) && buffsContains(a, b) &&
-                            !asteroidBuffCollide(a, b)) {
-                        continue;
-                    }
+                    // a may have moved, so find what is after b again
+                    count = broadphase.query(i, j);
+                    profiler.count(Profiler.PAIRS, count);
+                    k = -1;
+                }
+            }
+        }
+    }
 
-                    // resolve
-                    Entity.resolveCollision(a, b, mtv);
+    // collect every pair worth testing and run the narrow phase over them
+    private void detectContacts() {
+        narrowPhase.clear();
+        for (int i = 0; i < entities.size() - 1; i++) {
+            Entity a = entities.get(i);
+            if ((a == p && p.isDead()) || (a.isDead())) {
+                continue;
+            }
 
-                    // don't do anything cool to buffs
-                    if (buffs.contains(a) || buffs.contains(b)) {
-                        continue;
-                    }
+            int count = broadphase.query(i, i);
+            profiler.count(Profiler.PAIRS, count);
+            for (int k = 0; k < count; k++) {
+                int j = broadphase.getCandidate(k);
+                Entity b = entities.get(j);
+                if (!b.isDead() && canTouch(a, b)) {
+                    narrowPhase.add(i, j);
+                }
+            }
+        }
+        int hits = narrowPhase.detect(entities);
+        profiler.count(Profiler.SAT_TESTS, narrowPhase.size());
+        profiler.count(Profiler.SAT_HITS, hits);
+    }
 
-                    int sparks = StdRandom.uniform(5, 8);
-                    Vector dist = new Vector(a.center(), b.center());
-                    dist.scale(0.5);
-                    Point contact = new Point(a.center(), dist);
-                    dist.clamp(0.75);
-                    vfx.addSparks(sparks, contact, dist, 360);
+    // apply the contacts in pair order, a contact with an entity that was
+    // already pushed this tick gets tested again since its mtv is stale
+    private void resolveContacts() {
+        if (moved.length < entities.size()) {
+            moved = new boolean[entities.size() * 2];
+        }
+        else {
+            Arrays.fill(moved, false);
+        }
 
-                    // same types can't hurt each other
-                    if (a.getTag() == b.getTag()) {
-                        continue;
-                    }
+        for (int k = 0; k < narrowPhase.size(); k++) {
+            if (!narrowPhase.isHit(k)) {
+                continue;
+            }
+            int i = narrowPhase.getA(k);
+            int j = narrowPhase.getB(k);
+            Entity a = entities.get(i);
+            Entity b = entities.get(j);
 
-                    // damage both entities
-                    double dmgToA = b.area() / 2 * (b.vel.norm() - a.vel.norm());
-                    double dmgToB = a.area() / 2 * (a.vel.norm() - b.vel.norm());
-
-                    a.damage(Math.abs(dmgToA));
-                    b.damage(Math.abs(dmgToB));
-                    if (a.isDead()) {
-                        genExplosions(a);
-                        if (a != p) {
-                            entities.addAll(a.dropBuffs());
-                            buffs.addAll(a.dropBuffs());
-                        }
-                        if (b == p) {
-                            p.increaseScore(a.getPoints());
-                        }
-                    }
-                    else if (b.isDead()) {
-                        genExplosions(b);
-                        if (b != p) {
-                            entities.addAll(b.dropBuffs());
-                            buffs.addAll(b.dropBuffs());
-                        }
-                        if (a == p) {
-                            p.increaseScore(b.getPoints());
-                        }
-                    }
+            // earlier contacts can kill things or pick buffs up
+            if ((a == p && p.isDead()) || a.isDead() || b.isDead() ||
+                    !canTouch(a, b)) {
+                continue;
+            }
+
+            if (moved[i] || moved[j]) {
+                profiler.count(Profiler.SAT_TESTS, 1);
+                if (!a.collide(b, mtv)) {
+                    continue;
                 }
+                profiler.count(Profiler.SAT_HITS, 1);
+            }
+            else {
+                narrowPhase.getMtv(k, mtv);
             }
-        }
 
-        // remove all buffs that were picked up
-        entities.removeAll(pickedUp);
-        buffs.removeAll(pickedUp);
+            resolveContact(a, b, mtv);
+            moved[i] = true;
+            moved[j] = true;
+        }
     }
 
     // clean all arraylists
@@ -421,6 +716,9 @@ public class EntityHandler {
         // clean entities for dead things
         entities.removeIf(e -> e.isDead() && e != p);
         asteroids.removeIf(Entity::isDead);
+        if (store != null) {
+            store.removeDead();
+        }
         enemies.removeIf(Entity::isDead);
         projectiles.removeIf(Entity::isDead);
         buffs.removeIf(Entity::isDead);
@@ -430,6 +728,9 @@ public class EntityHandler {
     public void addAsteroid(Asteroid a) {
         entities.add(a);
         asteroids.add(a);
+        if (store != null) {
+            store.add(a);
+        }
     }
 
     // add enemy method
@@ -443,50 +744,135 @@ public class EntityHandler {
         projectiles.add(b);
     }
 
-    // draw everything
-    public void draw(Vector scroll, Rectangle camera) {
+    // draw everything, alpha is how far to draw between the last two steps
+    public void draw(Vector scroll, Rectangle camera, double alpha) {
         // make list of all visible entities
         ArrayList<Entity> visible = new ArrayList<>();
-        visible.addAll(entities);
+        if (store == null) {
+            visible.addAll(entities);
+        }
+        else {
+            // asteroids far off screen get dropped without refitting their
+            // aabb, everything else goes through the usual test
+            for (Entity e : entities) {
+                if (!isAsteroid(e)) {
+                    visible.add(e);
+                }
+            }
+            store.sync();
+            store.cullVisible(camera);
+            for (int id = 0; id < store.size(); id++) {
+                if (store.isOnScreen(id)) {
+                    visible.add(store.get(id));
+                }
+            }
+        }
         visible.addAll(projectiles);
 
         visible.removeIf(e -> {
-            if (!camera.collide(e.poly.aabb) || e.isDead()) {
+            if (!camera.collide(e.poly.getAabb()) || e.isDead()) {
                 return true;
             }
             return false;
         });
 
+        Renderer renderer = Renderer.current();
+
+        // turn everything to where it was alpha of the way through the step
+        visible.forEach(e -> e.lerpAngle(alpha));
+
         // draw background stuff
-        visible.forEach(e -> e.drawUnderline(scroll));
+        renderer.setLayer(Renderer.UNDERLINE);
+        visible.forEach(e -> e.drawUnderline(e.lerpScroll(scroll, alpha)));
 
         // add all new buff particles
-        visible.forEach(e -> vfx.addEffects(e.genBuffParticles()));
+        visible.forEach(e -> e.genBuffParticles(vfx));
 
         // draw foreground stuff
-        visible.forEach(e -> e.draw(scroll));
+        renderer.setLayer(Renderer.ENTITIES);
+        visible.forEach(e -> e.draw(e.lerpScroll(scroll, alpha)));
+
+        visible.forEach(Entity::restoreAngle);
     }
 
-    // update method that calls everything nicely
-    public void update(double dt, double scale, Vector scroll) {
+    // advance the simulation by one step
+    public void step(double dt, double scale, Vector scroll) {
+        // keep where everything was for drawing between steps
+        entities.forEach(Entity::savePrevious);
+        projectiles.forEach(Entity::savePrevious);
+
         Rectangle bounds = new Rectangle(-scale * 2, scale * 3,
                                          scale * 3, -scale * 2);
         bounds.translate(scroll.x, scroll.y);
 
+        // effects spawned this step that can't reach the screen get dropped
+        vfx.setCamera(camera(scale, scroll));
+
+        profiler.start(Profiler.PROJECTILES);
         handleProjectiles(dt, bounds);
+        profiler.stop(Profiler.PROJECTILES);
 
+        profiler.start(Profiler.UPDATE);
         updateEntities(dt, bounds);
+        profiler.stop(Profiler.UPDATE);
 
+        profiler.start(Profiler.COLLIDE);
         collideEntities();
+        profiler.stop(Profiler.COLLIDE);
 
+        profiler.start(Profiler.CLEAN);
         cleanLists();
+        profiler.stop(Profiler.CLEAN);
+    }
+
+    // draw the current state alpha of the way from the last step, effects
+    // still move with the frame's dt
+    public void render(double dt, double scale, Vector scroll, double alpha) {
+        Rectangle camera = camera(scale, scroll);
+        vfx.setCamera(camera);
+
+        profiler.start(Profiler.DRAW);
+        draw(scroll, camera, alpha);
+        profiler.stop(Profiler.DRAW);
+
+        profiler.start(Profiler.EFFECTS);
+        vfx.step(dt);
+        Renderer.current().setLayer(Renderer.EFFECTS);
+        vfx.draw(scroll, camera);
+        profiler.stop(Profiler.EFFECTS);
+    }
 
+    // start a frame, frameTime is how long frames are taking in ms, the
+    // effects budget gets tighter while it's over target
+    public void beginFrame(double frameTime) {
+        // close out the last frame's counts before the profiler rolls over
+        long spawned = vfx.getSpawned();
+        profiler.count(Profiler.PARTICLES, spawned - lastSpawned);
+        lastSpawned = spawned;
+        profiler.set(Profiler.ENTITIES, entities.size() + projectiles.size());
+        profiler.beginFrame();
+
+        vfx.beginFrame(frameTime);
+    }
+
+    // the part of the world on screen
+    private static Rectangle camera(double scale, Vector scroll) {
         Rectangle camera = new Rectangle(0, scale, scale, 0);
         camera.translate(scroll.x, scroll.y);
+        return camera;
+    }
 
-        draw(scroll, camera);
+    // move the effects along without drawing anything
+    public void stepEffects(double dt) {
+        profiler.start(Profiler.EFFECTS);
+        vfx.step(dt);
+        profiler.stop(Profiler.EFFECTS);
+    }
 
-        vfx.update(scroll, dt);
+    // update method that calls everything nicely, one step of dt per frame
+    public void update(double dt, double scale, Vector scroll) {
+        step(dt, scale, scroll);
+        render(dt, scale, scroll, 1);
     }
 
     // to string method
@@ -494,7 +880,8 @@ public class EntityHandler {
         return "Num of Entities: " + entities.size() + "\n"
                 + "Num of Asteroids: " + asteroids.size() + "\n"
                 + "Num of Projectiles: " + projectiles.size() + "\n"
-                + "Num of Pickups: " + buffs.size() + "\n";
+                + "Num of Pickups: " + buffs.size() + "\n"
+                + vfx;
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,339 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+Struct of arrays copy of the plain moving entities (asteroids) so the
+per-tick systems can run as tight loops over primitive arrays. Index i here is
+the same as index i in the list it mirrors, the entities themselves stay the
+facade everything else talks to. Whatever changes an entity outside the store,
+a collision or a buff, touches it, and the next sync copies just the touched
+ones back in rather than every entity every time.
+ */
+public class EntityStore {
+
+    // instance vars -----------------------------------------------------------
+
+    // the facades, same order as the handler's list
+    private Entity[] entities = new Entity[16];
+    private int size;
+
+    // per entity state
+    private double[] posX = new double[16];
+    private double[] posY = new double[16];
+    private double[] velX = new double[16];
+    private double[] velY = new double[16];
+    private double[] rotation = new double[16];
+    private double[] polyAngle = new double[16];
+    private double[] angularVel = new double[16];
+    private double[] hp = new double[16];
+
+    // furthest vertex from the center, an asteroid's own radius is only
+    // what it was generated with and a tip can stick out past it
+    private double[] radius = new double[16];
+    private char[] tag = new char[16];
+
+    // flags set by the culling passes
+    private boolean[] culled = new boolean[16];
+    private boolean[] onScreen = new boolean[16];
+
+    // entities changed outside the store since the last sync
+    private boolean[] stale = new boolean[16];
+    private int[] staleIds = new int[16];
+    private int staleCount;
+
+    // hits from the last blast
+    private int[] hits = new int[16];
+    private int hitCount;
+
+    // constructors ------------------------------------------------------------
+
+    public EntityStore() {
+    }
+
+    // getters -----------------------------------------------------------------
+
+    public int size() {
+        return size;
+    }
+
+    public Entity get(int id) {
+        return entities[id];
+    }
+
+    public char getTag(int id) {
+        return tag[id];
+    }
+
+    // return if the entity was out of bounds in the last cull
+    public boolean isCulled(int id) {
+        return culled[id];
+    }
+
+    // return if the entity might be on screen after the last visibility pass
+    public boolean isOnScreen(int id) {
+        return onScreen[id];
+    }
+
+    // return an entity hit by the last blast
+    public int getHit(int k) {
+        return hits[k];
+    }
+
+    // other methods -----------------------------------------------------------
+
+    // add an entity to the end of the store
+    public void add(Entity e) {
+        if (size == entities.length) {
+            grow();
+        }
+        entities[size] = e;
+        e.storeId = size;
+        culled[size] = false;
+        onScreen[size] = true;
+        stale[size] = false;
+        pull(size);
+        size++;
+    }
+
+    // add every entity in a list
+    public void addAll(ArrayList<? extends Entity> es) {
+        for (Entity e : es) {
+            add(e);
+        }
+    }
+
+    // empty the store
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            entities[i].storeId = -1;
+            stale[i] = false;
+        }
+        Arrays.fill(entities, 0, size, null);
+        size = 0;
+        staleCount = 0;
+    }
+
+    // drop dead entities, keeps the order so ids still match the list
+    public void removeDead() {
+        // ids are about to shift, so settle the touched ones first
+        sync();
+        int m = 0;
+        for (int i = 0; i < size; i++) {
+            if (entities[i].isDead()) {
+                entities[i].storeId = -1;
+                continue;
+            }
+            entities[m] = entities[i];
+            entities[m].storeId = m;
+            posX[m] = posX[i];
+            posY[m] = posY[i];
+            velX[m] = velX[i];
+            velY[m] = velY[i];
+            rotation[m] = rotation[i];
+            polyAngle[m] = polyAngle[i];
+            angularVel[m] = angularVel[i];
+            hp[m] = hp[i];
+            radius[m] = radius[i];
+            tag[m] = tag[i];
+            culled[m] = culled[i];
+            onScreen[m] = onScreen[i];
+            m++;
+        }
+        Arrays.fill(entities, m, size, null);
+        size = m;
+    }
+
+    // mark an entity as changed outside the store, entities that aren't in
+    // it are ignored
+    public void touch(Entity e) {
+        int id = e.storeId;
+        if (id < 0 || id >= size || entities[id] != e || stale[id]) {
+            return;
+        }
+        stale[id] = true;
+        if (staleCount == staleIds.length) {
+            staleIds = Arrays.copyOf(staleIds, staleCount * 2);
+        }
+        staleIds[staleCount++] = id;
+    }
+
+    // copy the touched entities back in, runs before anything reads the
+    // arrays
+    public void sync() {
+        for (int k = 0; k < staleCount; k++) {
+            int id = staleIds[k];
+            pull(id);
+            stale[id] = false;
+        }
+        staleCount = 0;
+    }
+
+    // copy one entity's state in from its facade
+    private void pull(int id) {
+        Entity e = entities[id];
+        posX[id] = e.poly.centerX();
+        posY[id] = e.poly.centerY();
+        velX[id] = e.vel.x;
+        velY[id] = e.vel.y;
+        rotation[id] = e.rotation;
+        polyAngle[id] = e.poly.getAngle();
+        angularVel[id] = e.angularVel;
+        hp[id] = e.hp;
+        radius[id] = e.poly.getRadius();
+        tag[id] = e.tag;
+    }
+
+    // kill everything with its center outside the bounds
+    public void cull(Rectangle bounds) {
+        double lft = bounds.getLft();
+        double rht = bounds.getRht();
+        double top = bounds.getTop();
+        double bot = bounds.getBot();
+        for (int i = 0; i < size; i++) {
+            double x = posX[i];
+            double y = posY[i];
+            culled[i] = !(x > lft && x < rht && y < top && y > bot);
+            if (culled[i]) {
+                hp[i] = 0;
+                entities[i].die();
+            }
+        }
+    }
+
+    // move and spin everything that wasn't culled
+    public void integrate(double dt) {
+        for (int i = 0; i < size; i++) {
+            if (culled[i]) {
+                continue;
+            }
+            posX[i] = posX[i] + velX[i] * dt;
+            posY[i] = posY[i] + velY[i] * dt;
+            double degrees = angularVel[i] * dt;
+            rotation[i] = (rotation[i] + degrees) % 360;
+            polyAngle[i] = (polyAngle[i] + degrees) % 360;
+        }
+    }
+
+    // write the new transforms back out to the facades
+    public void push() {
+        for (int i = 0; i < size; i++) {
+            if (culled[i]) {
+                continue;
+            }
+            Entity e = entities[i];
+            e.poly.setTransform(posX[i], posY[i], polyAngle[i]);
+            e.rotation = rotation[i];
+            e.vel.setOrigin(posX[i], posY[i]);
+        }
+    }
+
+    // damage everything within range of a point, returns the number hit
+    public int blast(double x, double y, double range, double damage) {
+        hitCount = 0;
+        for (int i = 0; i < size; i++) {
+            double dx = posX[i] - x;
+            double dy = posY[i] - y;
+            if (Math.sqrt(dx * dx + dy * dy) > range) {
+                continue;
+            }
+
+            hp[i] -= damage;
+            if (hp[i] < Constants.TOLERANCE) {
+                hp[i] = 0;
+            }
+            entities[i].hp = hp[i];
+
+            if (hitCount == hits.length) {
+                hits = Arrays.copyOf(hits, hitCount * 2);
+            }
+            hits[hitCount++] = i;
+        }
+        return hitCount;
+    }
+
+    // cheap circle test against the camera so far away entities never have
+    // to build their world vertices just to be skipped
+    public void cullVisible(Rectangle camera) {
+        double lft = camera.getLft();
+        double rht = camera.getRht();
+        double top = camera.getTop();
+        double bot = camera.getBot();
+        for (int i = 0; i < size; i++) {
+            double r = radius[i];
+            onScreen[i] = posX[i] + r >= lft && posX[i] - r <= rht &&
+                    posY[i] + r >= bot && posY[i] - r <= top;
+        }
+    }
+
+    // double every array
+    private void grow() {
+        int cap = entities.length * 2;
+        entities = Arrays.copyOf(entities, cap);
+        posX = Arrays.copyOf(posX, cap);
+        posY = Arrays.copyOf(posY, cap);
+        velX = Arrays.copyOf(velX, cap);
+        velY = Arrays.copyOf(velY, cap);
+        rotation = Arrays.copyOf(rotation, cap);
+        polyAngle = Arrays.copyOf(polyAngle, cap);
+        angularVel = Arrays.copyOf(angularVel, cap);
+        hp = Arrays.copyOf(hp, cap);
+        radius = Arrays.copyOf(radius, cap);
+        tag = Arrays.copyOf(tag, cap);
+        culled = Arrays.copyOf(culled, cap);
+        onScreen = Arrays.copyOf(onScreen, cap);
+        stale = Arrays.copyOf(stale, cap);
+    }
+
+    public static void main(String[] args) {
+        StdRandom.setSeed(0);
+        double scale = Constants.SCALE;
+        Rectangle camera = new Rectangle(0, scale, scale, 0);
+
+        // asteroids centered just off the left or bottom edge by about
+        // their radius, so only a tip if anything is on screen
+        EntityStore store = new EntityStore();
+        for (int i = 0; i < 5000; i++) {
+            double r = StdRandom.uniform(scale * 0.03, scale * 0.2);
+            double off = -r * StdRandom.uniform(0.9, 1.1);
+            double along = StdRandom.uniform(0.0, scale);
+            boolean left = StdRandom.bernoulli();
+            store.add(Asteroid.genAsteroid(left ? off : along,
+                                           left ? along : off,
+                                           new Vector(), r));
+        }
+        store.cullVisible(camera);
+
+        // the circle test can keep extra but must never drop anything whose
+        // aabb is on screen
+        int partly = 0;
+        int dropped = 0;
+        int droppedByRad = 0;
+        for (int id = 0; id < store.size(); id++) {
+            Entity e = store.get(id);
+            if (!camera.collide(e.poly.getAabb())) {
+                continue;
+            }
+            double x = e.poly.centerX();
+            double y = e.poly.centerY();
+            if (camera.contains(e.center())) {
+                continue;
+            }
+            partly++;
+            if (!store.isOnScreen(id)) {
+                dropped++;
+            }
+            double r = e.getRadius();
+            if (!(x + r >= 0 && x - r <= scale && y + r >= 0 &&
+                    y - r <= scale)) {
+                droppedByRad++;
+            }
+        }
+        StdOut.printf("partly visible: %d, dropped: %d, dropped going by " +
+                              "the generation radius: %d%n", partly, dropped,
+                      droppedByRad);
+        if (dropped > 0) {
+            throw new RuntimeException("cullVisible dropped " + dropped +
+                                               " visible asteroids.");
+        }
+    }
+}
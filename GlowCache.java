@@ -0,0 +1,230 @@
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+Circle glows pre-rendered into images, so a glow costs one blit instead of up
+to ten wide antialiased circles. Sprites are keyed by color, a radius bucket,
+the pen radius the glow starts at and the number of rings. Sprites stay in
+memory and get blitted through the renderer's image path, past the capacity
+the least recently used one is evicted and left to the garbage collector.
+ */
+public class GlowCache {
+
+    // static vars -------------------------------------------------------------
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    // StdDraw's canvas is 512 pixels across and the game's scale spans it
+    private static final double CANVAS_PIXELS = 512;
+    private static final double PIXELS_PER_UNIT =
+            CANVAS_PIXELS / Constants.SCALE;
+
+    // buckets per doubling of a size, sprites get stretched to the exact
+    // radius when drawn so this only shows up in the ring widths
+    private static final int BUCKETS_PER_DOUBLING = 8;
+    private static final int BUCKET_OFFSET = 128;
+
+    // color channels are rounded to this step, fading exhaust would make a
+    // new sprite every frame otherwise
+    private static final int COLOR_STEP = 17;
+
+    // each ring's pen is this much wider than the last, same as VFX.glow
+    private static final double RING_GROWTH = 1.5;
+
+    // instance vars -----------------------------------------------------------
+
+    private final int capacity;
+
+    // access ordered, so the eldest entry is the least recently used
+    private final LinkedHashMap<Long, Sprite> sprites;
+
+    // stats
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    // constructors ------------------------------------------------------------
+
+    public GlowCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public GlowCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1.");
+        }
+        this.capacity = capacity;
+        sprites = new LinkedHashMap<>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Long, Sprite> e) {
+                if (size() > GlowCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // getters -----------------------------------------------------------------
+
+    public int size() {
+        return sprites.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    // other methods -----------------------------------------------------------
+
+    // return the sprite for a glow, rendering it if it isn't cached
+    public Sprite get(Color color, double radius, double penRadius, int rings) {
+        int r = quantize(color.getRed());
+        int g = quantize(color.getGreen());
+        int b = quantize(color.getBlue());
+        int a = color.getAlpha();
+        int radiusBucket = bucket(radius * PIXELS_PER_UNIT);
+        int penBucket = bucket(penRadius * CANVAS_PIXELS);
+
+        long key = ((long) (r / COLOR_STEP) << 40) |
+                ((long) (g / COLOR_STEP) << 36) |
+                ((long) (b / COLOR_STEP) << 32) |
+                ((long) a << 24) |
+                ((long) radiusBucket << 14) |
+                ((long) penBucket << 4) |
+                Math.min(rings, 0xF);
+
+        Sprite sprite = sprites.get(key);
+        if (sprite != null) {
+            hits++;
+            return sprite;
+        }
+        misses++;
+
+        sprite = render(new Color(r, g, b, a), unbucket(radiusBucket),
+                        unbucket(penBucket), rings);
+        sprites.put(key, sprite);
+        return sprite;
+    }
+
+    // drop every sprite
+    public void clear() {
+        sprites.clear();
+    }
+
+    // draw the rings the way VFX.glow used to, pixel sizes in
+    private Sprite render(Color color, double radiusPx, double penPx,
+                          int rings) {
+        double widest = penPx * Math.pow(RING_GROWTH, Math.max(0, rings - 1));
+        int size = (int) Math.ceil(2 * radiusPx + widest) + 2;
+
+        BufferedImage image = new BufferedImage(size, size,
+                                                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                           RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(color);
+
+        // drawing each ring over the last composites the same as it would on
+        // the canvas, so blitting the result looks like drawing them there
+        double c = size / 2.0;
+        double d = 2 * radiusPx;
+        Ellipse2D.Double circle = new Ellipse2D.Double(c - radiusPx,
+                                                       c - radiusPx, d, d);
+        double width = penPx;
+        for (int i = 0; i < rings; i++) {
+            g.setStroke(new BasicStroke((float) width, BasicStroke.CAP_ROUND,
+                                        BasicStroke.JOIN_ROUND));
+            g.draw(circle);
+            width *= RING_GROWTH;
+        }
+        g.dispose();
+
+        return new Sprite(image, radiusPx / PIXELS_PER_UNIT,
+                          size / PIXELS_PER_UNIT);
+    }
+
+    // round a channel to the nearest step
+    private static int quantize(int channel) {
+        return Math.round(channel / (float) COLOR_STEP) * COLOR_STEP;
+    }
+
+    // log scale bucket of a pixel size
+    private static int bucket(double px) {
+        double log = Math.log(Math.max(px, 0.01)) / Math.log(2);
+        int b = (int) Math.round(log * BUCKETS_PER_DOUBLING) + BUCKET_OFFSET;
+        return Math.max(0, Math.min(b, 0x3FF));
+    }
+
+    // pixel size a bucket stands for
+    private static double unbucket(int bucket) {
+        return Math.pow(2, (bucket - BUCKET_OFFSET) /
+                (double) BUCKETS_PER_DOUBLING);
+    }
+
+    public String toString() {
+        return String.format("glow sprites: %d/%d, hits: %d, misses: %d, " +
+                                     "evictions: %d%n", size(), capacity,
+                             hits, misses, evictions);
+    }
+
+    // subclasses --------------------------------------------------------------
+
+    // a rendered glow, sizes in game units
+    public static class Sprite {
+
+        // instance vars -------------------------------------------------------
+
+        private final BufferedImage image;
+        private final double radius;
+        private final double size;
+
+        // constructors --------------------------------------------------------
+
+        public Sprite(BufferedImage image, double radius, double size) {
+            this.image = image;
+            this.radius = radius;
+            this.size = size;
+        }
+
+        // getters -------------------------------------------------------------
+
+        public BufferedImage getImage() {
+            return image;
+        }
+
+        // return the width to draw the sprite at for a glow of some radius
+        public double sizeFor(double radius) {
+            return size * radius / this.radius;
+        }
+    }
+
+    public static void main(String[] args) {
+        GlowCache cache = new GlowCache(8);
+        Color glow = new Color(255, 69, 0, 10);
+        for (int i = 0; i < 1000; i++) {
+            double radius = 0.5 + (i % 40) * 0.1;
+            cache.get(glow, radius, 0.002, 10);
+        }
+        StdOut.print(cache);
+        cache.clear();
+    }
+}
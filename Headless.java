@@ -0,0 +1,185 @@
+/*
+Runs the game without a window, stepping the simulation as fast as it can
+with a scripted player and a manual clock, then reports ticks per second.
+Same seed and arguments give the same game every time.
+
+usage: java Headless [ticks] [seed] [BRUTE|HASH|SAP] [STORE] [RENDER]
+                     [PARALLEL] [PIPELINED] [script=...]
+
+RENDER also records every frame's draw commands with the null renderer, so
+the cost of building and sorting them shows up without drawing anything.
+PIPELINED plays those frames on a second thread instead, like the game does
+with the same flag.
+
+The report ends with the entity handler's phase times and frame counters.
+ */
+public class Headless {
+
+    // static vars -------------------------------------------------------------
+
+    // flies around in circles shooting, reloads every so often
+    private static final String DEFAULT_SCRIPT =
+            "W ,W ,WA ,WA , , A,".repeat(10) + "S";
+
+    // static methods ----------------------------------------------------------
+
+    private static Player genPlayer(String script) {
+        Player p = new Player();
+        p.setInput(new Player.Scripted(script));
+        Enemy.setTarget(p);
+        Enemy.startClock();
+        return p;
+    }
+
+    public static void main(String[] args) {
+        int ticks = 10000;
+        long seed = 0;
+        String script = DEFAULT_SCRIPT;
+        Broadphase broadphase = new Broadphase.SpatialHash();
+        boolean useStore = false;
+        boolean render = false;
+        boolean parallel = false;
+        boolean pipelined = false;
+
+        // numbers are ticks then seed, anything else is a flag
+        int numbers = 0;
+        for (String arg : args) {
+            if (arg.matches("-?\\d+")) {
+                if (numbers++ == 0) {
+                    ticks = Integer.parseInt(arg);
+                }
+                else {
+                    seed = Long.parseLong(arg);
+                }
+            }
+            else if (arg.startsWith("script=")) {
+                script = arg.substring("script=".length());
+            }
+            else if (arg.equalsIgnoreCase("STORE")) {
+                useStore = true;
+            }
+            else if (arg.equalsIgnoreCase("RENDER")) {
+                render = true;
+            }
+            else if (arg.equalsIgnoreCase("PARALLEL")) {
+                parallel = true;
+            }
+            else if (arg.equalsIgnoreCase("PIPELINED")) {
+                pipelined = true;
+                render = true;
+            }
+            else {
+                broadphase = Broadphase.create(arg);
+            }
+        }
+
+        // time only moves when a tick says so
+        Clock.ManualTimeSource time = new Clock.ManualTimeSource();
+        Clock.setTimeSource(time);
+        StdRandom.setSeed(seed);
+
+        double scale = Constants.SCALE;
+        Clock clock = new Clock();
+        Clock.Timer TIMER = SharpShots.genSpawnTimer();
+
+        Player p = genPlayer(script);
+        EntityHandler eHandler = new EntityHandler(p, broadphase);
+        if (useStore) {
+            eHandler.setEntityStore(new EntityStore());
+        }
+        if (parallel) {
+            eHandler.setNarrowPhase(new NarrowPhase());
+        }
+
+        Vector scroll = new Vector();
+        int games = 1;
+        double totalScore = 0;
+
+        // never opens a window, only records
+        Renderer renderer = new Renderer();
+        Renderer.use(renderer);
+        long commands = 0;
+        long stateChanges = 0;
+        long effectsCulled = 0;
+
+        Renderer.Pipeline pipeline = null;
+        Thread player = null;
+        if (pipelined) {
+            pipeline = new Renderer.Pipeline(renderer);
+            player = pipeline.start();
+        }
+
+        clock.start();
+        long start = System.nanoTime();
+        for (int t = 0; t < ticks; t++) {
+            time.advance(Constants.FIXED_DT * 60);
+            clock.tick();
+            double dt = Constants.FIXED_DT;
+            eHandler.beginFrame(clock.getFrameTime());
+
+            SharpShots.spawn(TIMER, eHandler, p, scroll, clock.elapsedMins());
+            eHandler.step(dt, scale, scroll);
+            if (render) {
+                eHandler.render(dt, scale, scroll, 1);
+                effectsCulled += eHandler.getVFX().getCulled();
+                if (pipeline != null) {
+                    pipeline.publish();
+                }
+                else {
+                    renderer.flush();
+                    commands += renderer.getLastCommands();
+                    stateChanges += renderer.getLastStateChanges();
+                }
+            }
+            else {
+                eHandler.stepEffects(dt);
+            }
+            SharpShots.followPlayer(scroll, p, dt);
+
+            // out of lives, start over like pressing enter would
+            if (p.getLives() <= 0 && p.isDead()) {
+                totalScore += p.getScore();
+                p = genPlayer(script);
+                eHandler.restart(p);
+                games++;
+            }
+        }
+        if (pipeline != null) {
+            pipeline.close();
+            try {
+                player.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        double secs = (System.nanoTime() - start) / 1.0e9;
+        totalScore += p.getScore();
+
+        StdOut.printf("ticks: %d in %.3f s%n", ticks, secs);
+        StdOut.printf("tps: %.1f%n", ticks / secs);
+        StdOut.printf("games: %d, total score: %.2f%n", games, totalScore);
+        if (pipeline != null) {
+            StdOut.printf("frames published: %d, played: %d, dropped: %d%n",
+                          pipeline.getPublished(), pipeline.getPlayed(),
+                          pipeline.getDropped());
+        }
+        else if (render) {
+            StdOut.printf("draw commands per tick: %.1f, pen changes: %.1f%n",
+                          (double) commands / ticks,
+                          (double) stateChanges / ticks);
+        }
+        if (render) {
+            StdOut.printf("effects culled per tick: %.1f%n",
+                          (double) effectsCulled / ticks);
+        }
+        VFX.Budget budget = eHandler.getVFX().getBudget();
+        StdOut.printf("particles dropped: %d capped, %d reduced, " +
+                              "%d off camera%n",
+                      budget.getTotalDropped(VFX.Budget.CAPPED),
+                      budget.getTotalDropped(VFX.Budget.REDUCED),
+                      budget.getTotalDropped(VFX.Budget.OFF_CAMERA));
+        StdOut.print(eHandler);
+        StdOut.print(eHandler.getProfiler());
+    }
+}
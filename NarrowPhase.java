@@ -0,0 +1,189 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+Runs the SAT test over a list of candidate pairs and keeps a contact record
+(the pair and its mtv) for each one. A test only reads the two polygons, so
+big lists get split over the fork/join pool. Every polygon's lazy caches are
+built before the workers start so nothing is written while they run. Each
+result lands in its pair's slot, so the records come out the same however the
+work was split.
+ */
+public class NarrowPhase {
+
+    // static vars -------------------------------------------------------------
+
+    // lists with at least this many pairs get tested in parallel, below it
+    // handing out the work costs more than the tests
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 256;
+
+    // pairs a single task tests
+    private static final int CHUNK = 64;
+
+    // instance vars -----------------------------------------------------------
+
+    private int parallelThreshold;
+
+    // the pairs, indexes into the list handed to detect
+    private int count;
+    private int[] pairA = new int[256];
+    private int[] pairB = new int[256];
+
+    // what the last detect found for each pair
+    private boolean[] hit = new boolean[256];
+    private double[] mtvX = new double[256];
+    private double[] mtvY = new double[256];
+
+    // constructors ------------------------------------------------------------
+
+    public NarrowPhase() {
+        this(DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    public NarrowPhase(int parallelThreshold) {
+        setParallelThreshold(parallelThreshold);
+    }
+
+    // getters -----------------------------------------------------------------
+
+    public int size() {
+        return count;
+    }
+
+    public int getA(int k) {
+        return pairA[k];
+    }
+
+    public int getB(int k) {
+        return pairB[k];
+    }
+
+    // return if the pair was touching when detect ran
+    public boolean isHit(int k) {
+        return hit[k];
+    }
+
+    // write the pair's mtv into out
+    public void getMtv(int k, Vector out) {
+        out.zero();
+        out.x = mtvX[k];
+        out.y = mtvY[k];
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    // setters -----------------------------------------------------------------
+
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 0) {
+            throw new IllegalArgumentException("Threshold must be >= 0.");
+        }
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    // other methods -----------------------------------------------------------
+
+    public void clear() {
+        count = 0;
+    }
+
+    // add a pair to test, a's mtv pushes it away from b
+    public void add(int a, int b) {
+        if (count == pairA.length) {
+            int cap = count * 2;
+            pairA = Arrays.copyOf(pairA, cap);
+            pairB = Arrays.copyOf(pairB, cap);
+            hit = Arrays.copyOf(hit, cap);
+            mtvX = Arrays.copyOf(mtvX, cap);
+            mtvY = Arrays.copyOf(mtvY, cap);
+        }
+        pairA[count] = a;
+        pairB[count] = b;
+        count++;
+    }
+
+    // test every pair, returns the number touching
+    public int detect(ArrayList<? extends Entity> entities) {
+        // after this the tests only read, until something moves
+        for (int k = 0; k < count; k++) {
+            entities.get(pairA[k]).poly.prepare();
+            entities.get(pairB[k]).poly.prepare();
+        }
+
+        if (count >= parallelThreshold && count > CHUNK) {
+            ForkJoinPool.commonPool().invoke(new Chunk(entities, 0, count));
+        }
+        else {
+            detect(entities, 0, count, new Vector());
+        }
+
+        int hits = 0;
+        for (int k = 0; k < count; k++) {
+            if (hit[k]) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    // test the pairs in [from, to), out is scratch for this thread only
+    private void detect(ArrayList<? extends Entity> entities, int from, int to,
+                        Vector out) {
+        for (int k = from; k < to; k++) {
+            Entity a = entities.get(pairA[k]);
+            Entity b = entities.get(pairB[k]);
+            hit[k] = a.collide(b, out);
+            mtvX[k] = out.x;
+            mtvY[k] = out.y;
+        }
+    }
+
+    // subclasses --------------------------------------------------------------
+
+    // tests a range of pairs, splitting in half until it's small
+    private class Chunk extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ArrayList<? extends Entity> entities;
+        private final int from;
+        private final int to;
+
+        private Chunk(ArrayList<? extends Entity> entities, int from, int to) {
+            this.entities = entities;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (to - from <= CHUNK) {
+                detect(entities, from, to, new Vector());
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Chunk(entities, from, mid),
+                      new Chunk(entities, mid, to));
+        }
+    }
+
+    public static void main(String[] args) {
+        ArrayList<Entity> entities = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            Point c = new Point(i % 20 * 4, i / 20 * 4);
+            entities.add(Asteroid.genAsteroid(c.x, c.y, new Vector(), 3));
+        }
+
+        NarrowPhase narrow = new NarrowPhase(0);
+        for (int i = 0; i < entities.size(); i++) {
+            for (int j = i + 1; j < entities.size(); j++) {
+                narrow.add(i, j);
+            }
+        }
+        StdOut.println(narrow.detect(entities) + " of " + narrow.size() +
+                               " pairs touching");
+    }
+}
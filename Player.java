@@ -22,11 +22,13 @@ public class Player extends Entity {
     private boolean reloading = false;
 
     // misc.
-    private Point head;
     private double size;
     private double score = 0;
     private boolean isInvuln = false;
 
+    // where the controls come from, the keyboard unless told otherwise
+    private Input input = new Keyboard();
+
     // constructors ------------------------------------------------------------
     public Player() {
         super(BasePolygon.genShape(3, Constants.PLAYER_SIZE), new Vector(), 50);
@@ -34,8 +36,8 @@ public class Player extends Entity {
         // create player polygon
         this.size = Constants.PLAYER_SIZE;
         dmg = 30;
-        head = poly.verts[0];
         tag = Constants.PLAYER_TAG;
+        kind = Constants.PLAYER_KIND;
         homeChance = 0.0;
         reloadTime = 1500;
         max_speed = 2;
@@ -70,7 +72,11 @@ public class Player extends Entity {
 
     // setters -----------------------------------------------------------------
 
-    public void setTimerDuration(String key, double duration) {
+    public void setInput(Input input) {
+        this.input = input;
+    }
+
+    public void setTimerDuration(int key, double duration) {
         TIMER.changeDuration(key, duration);
     }
 
@@ -111,11 +117,12 @@ public class Player extends Entity {
     }
 
     // collide method has slight modification
-    public Vector collide(Entity e) {
+    public boolean collide(Entity e, Vector out) {
         if (isInvuln || isDead()) {
-            return new Vector();
+            out.zero();
+            return false;
         }
-        return poly.collide(e.poly);
+        return poly.collide(e.poly, out);
     }
 
     // shooting method
@@ -127,6 +134,7 @@ public class Player extends Entity {
         else {
             b = shootNormal();
         }
+        b.setOwner(this);
         ammo--;
         TIMER.setCheck(Constants.SHOOT_KEY);
         vel.subtract(Vector.scale(b.vel, b.area() / area()));
@@ -134,14 +142,14 @@ public class Player extends Entity {
     }
 
     public Bullet shootNormal() {
-        Bullet b = new Bullet(head, rotation, projSpd, dmg, tag,
+        Bullet b = new Bullet(getHead(), rotation, projSpd, dmg, tag,
                               Constants.PLAYER_GLOW);
         return b;
     }
 
     // shoot homing method
     private Homing shootHoming() {
-        Homing h = new Homing(head, rotation, projSpd, dmg, tag,
+        Homing h = new Homing(getHead(), rotation, projSpd, dmg, tag,
                               Constants.PLAYER_GLOW, 90);
         h.setTarget(Constants.ENEMY_TAG);
         h.setHomeWeight(20);
@@ -185,33 +193,29 @@ public class Player extends Entity {
         isTurningLeft = false;
         isTurningRight = false;
         shot = false;
+        input.next();
 
         // check if player is applying thrust
-        if (StdDraw.isKeyPressed(KeyEvent.VK_UP) ||
-                StdDraw.isKeyPressed(KeyEvent.VK_W)) {
+        if (input.thrust()) {
             isThrusting = true;
         }
 
         // check if the player is trying to turn
-        if (StdDraw.isKeyPressed(KeyEvent.VK_LEFT) ||
-                StdDraw.isKeyPressed(KeyEvent.VK_A)) {
+        if (input.turnLeft()) {
             isTurningLeft = true;
         }
-        if (StdDraw.isKeyPressed(KeyEvent.VK_RIGHT) ||
-                StdDraw.isKeyPressed(KeyEvent.VK_D)) {
+        if (input.turnRight()) {
             isTurningRight = true;
         }
 
         // check if player wants to reload
-        if ((StdDraw.isKeyPressed(KeyEvent.VK_DOWN) ||
-                StdDraw.isKeyPressed(KeyEvent.VK_S)) && !reloading &&
-                ammo < ammoStat) {
+        if (input.reload() && !reloading && ammo < ammoStat) {
             reloading = true;
             TIMER.setCheck(Constants.RELOAD_KEY);
         }
 
         // check if the player is trying to shoot
-        if (StdDraw.isKeyPressed(KeyEvent.VK_SPACE)) {
+        if (input.shoot()) {
             if (canShoot()) {
                 shot = true;
             }
@@ -301,13 +305,14 @@ public class Player extends Entity {
         double sin = Math.sin(Math.toRadians(rotation));
         double d = getRadius() * 2;
         double l = getRadius() / 2;
+        Point head = getHead();
         Point p1 = new Point(head.x - d * cos - l * sin,
                              head.y - d * sin + l * cos);
         Point p2 = new Point(head.x - d * cos + l * sin,
                              head.y - d * sin - l * cos);
         p1.subtract(scroll);
         p2.subtract(scroll);
-        StdDraw.line(p1.x, p1.y, p2.x, p2.y);
+        Renderer.current().line(p1.x, p1.y, p2.x, p2.y);
     }
 
     // increase the score of the player
@@ -330,6 +335,7 @@ public class Player extends Entity {
 
     // draw health bar (right aligned)
     public void drawHealth(double x, double y, double scale) {
+        Renderer renderer = Renderer.current();
 
         double maxWidth = scale / 2;
         double width = maxWidth * (hp / hpStat);
@@ -337,8 +343,8 @@ public class Player extends Entity {
 
         double[] px = { x, x, x - maxWidth - scale * 0.01, x - maxWidth };
         double[] py = { y - height, y, y, y - height };
-        StdDraw.setPenColor(Constants.ACCENT_COLOR);
-        StdDraw.polygon(px, py);
+        renderer.setColor(Constants.ACCENT_COLOR);
+        renderer.polygon(px, py);
 
         for (int i = 0; i < px.length; i++) {
             px[i] += Constants.ACCENT_OFFSET.x;
@@ -360,12 +366,14 @@ public class Player extends Entity {
 
         VFX.glow(px, py, hpGlow, 1);
 
-        StdDraw.setPenColor(Constants.PRIMARY_COLOR);
-        StdDraw.polygon(px, py);
+        renderer.setColor(Constants.PRIMARY_COLOR);
+        renderer.polygon(px, py);
     }
 
     // draw ammo (right aligned)
     public void drawAmmo(double x, double y, double scale) {
+        Renderer renderer = Renderer.current();
+
         double width = Bullet.BASE_SIZE * 2;
         double offX = Constants.ACCENT_OFFSET.x;
         double offY = Constants.ACCENT_OFFSET.y;
@@ -373,10 +381,10 @@ public class Player extends Entity {
         double bx = x;
 
         for (int i = 0; i < ammo; i++) {
-            StdDraw.setPenColor(Constants.ACCENT_COLOR);
-            StdDraw.circle(bx - offX, y - offY, Bullet.BASE_SIZE / 2);
-            StdDraw.setPenColor(Constants.PRIMARY_COLOR);
-            StdDraw.circle(bx, y, Bullet.BASE_SIZE / 2);
+            renderer.setColor(Constants.ACCENT_COLOR);
+            renderer.circle(bx - offX, y - offY, Bullet.BASE_SIZE / 2);
+            renderer.setColor(Constants.PRIMARY_COLOR);
+            renderer.circle(bx, y, Bullet.BASE_SIZE / 2);
             bx -= width;
         }
 
@@ -391,8 +399,8 @@ public class Player extends Entity {
 
             double[] px = { x, x, x - maxWidth - scale * 0.01, x - maxWidth };
             double[] py = { y - height, y, y, y - height };
-            StdDraw.setPenColor(Constants.ACCENT_COLOR);
-            StdDraw.polygon(px, py);
+            renderer.setColor(Constants.ACCENT_COLOR);
+            renderer.polygon(px, py);
 
             for (int i = 0; i < px.length; i++) {
                 px[i] += offX;
@@ -402,8 +410,8 @@ public class Player extends Entity {
             double v1 = maxWidth * (duration / reloadTime);
             px[2] = x - v1 - scale * 0.01;
             px[3] = x - v1;
-            StdDraw.setPenColor(Constants.PRIMARY_COLOR);
-            StdDraw.polygon(px, py);
+            renderer.setColor(Constants.PRIMARY_COLOR);
+            renderer.polygon(px, py);
         }
     }
 
@@ -411,6 +419,118 @@ public class Player extends Entity {
         return String.format("HP: %.2f\nDMG: %.2f\nH: %.2f", hpStat, dmg, homeChance);
     }
 
+    // subclasses --------------------------------------------------------------
+
+    // controls for the player, the base class presses nothing
+    public static class Input {
+
+        // other methods -------------------------------------------------------
+
+        // called once before the controls are read each update
+        public void next() {
+        }
+
+        public boolean thrust() {
+            return false;
+        }
+
+        public boolean turnLeft() {
+            return false;
+        }
+
+        public boolean turnRight() {
+            return false;
+        }
+
+        public boolean reload() {
+            return false;
+        }
+
+        public boolean shoot() {
+            return false;
+        }
+    }
+
+    // controls read from the keyboard through StdDraw
+    public static class Keyboard extends Input {
+
+        // other methods -------------------------------------------------------
+
+        public boolean thrust() {
+            return StdDraw.isKeyPressed(KeyEvent.VK_UP) ||
+                    StdDraw.isKeyPressed(KeyEvent.VK_W);
+        }
+
+        public boolean turnLeft() {
+            return StdDraw.isKeyPressed(KeyEvent.VK_LEFT) ||
+                    StdDraw.isKeyPressed(KeyEvent.VK_A);
+        }
+
+        public boolean turnRight() {
+            return StdDraw.isKeyPressed(KeyEvent.VK_RIGHT) ||
+                    StdDraw.isKeyPressed(KeyEvent.VK_D);
+        }
+
+        public boolean reload() {
+            return StdDraw.isKeyPressed(KeyEvent.VK_DOWN) ||
+                    StdDraw.isKeyPressed(KeyEvent.VK_S);
+        }
+
+        public boolean shoot() {
+            return StdDraw.isKeyPressed(KeyEvent.VK_SPACE);
+        }
+    }
+
+    // controls played back from a script that loops forever, frames are
+    // split by commas and use the same keys as the keyboard, W thrust, A and
+    // D turn, S reload and a space to shoot, e.g. "W ,WA,WA, ,S"
+    public static class Scripted extends Input {
+
+        // instance vars -------------------------------------------------------
+
+        private String[] frames;
+        private int frame = -1;
+
+        // constructors --------------------------------------------------------
+
+        public Scripted(String script) {
+            if (script == null || script.isEmpty()) {
+                throw new IllegalArgumentException("Script can't be empty.");
+            }
+            frames = script.split(",", -1);
+        }
+
+        // other methods -------------------------------------------------------
+
+        public void next() {
+            frame = (frame + 1) % frames.length;
+        }
+
+        private boolean pressed(char key) {
+            return frames[Math.max(frame, 0)].indexOf(key) >= 0;
+        }
+
+        public boolean thrust() {
+            return pressed('W');
+        }
+
+        public boolean turnLeft() {
+            return pressed('A');
+        }
+
+        public boolean turnRight() {
+            return pressed('D');
+        }
+
+        public boolean reload() {
+            return pressed('S');
+        }
+
+        public boolean shoot() {
+            return pressed(' ');
+        }
+    }
+
     public static void main(String[] args) {
     }
 }
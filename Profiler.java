@@ -0,0 +1,288 @@
+import java.util.Arrays;
+
+/*
+Per phase frame timers and per frame counters. A phase's time gets summed
+over the frame, since fixed steps can run a phase more than once, and the last
+window of frames is kept for each phase so min, mean, p99 and max always cover
+the recent past. Counters add up over a frame. Everything is read back after
+the frame that produced it ends, so an overlay drawn mid frame and a headless
+report at the end see the same numbers. Timing a phase costs two nanoTime
+calls, or nothing while disabled.
+ */
+public class Profiler {
+
+    // static vars -------------------------------------------------------------
+
+    // phases, in the order a frame runs them
+    public static final int BACKGROUND = 0;
+    public static final int PROJECTILES = 1;
+    public static final int UPDATE = 2;
+    public static final int COLLIDE = 3;
+    public static final int CLEAN = 4;
+    public static final int DRAW = 5;
+    public static final int EFFECTS = 6;
+    public static final int HUD = 7;
+    public static final int NUM_PHASES = 8;
+
+    private static final String[] PHASE_NAMES = {
+            "background", "projectiles", "update", "collide", "clean", "draw",
+            "effects", "hud"
+    };
+
+    // counters
+    public static final int ENTITIES = 0;
+    public static final int PAIRS = 1;
+    public static final int SAT_TESTS = 2;
+    public static final int SAT_HITS = 3;
+    public static final int PARTICLES = 4;
+    public static final int NUM_COUNTERS = 5;
+
+    private static final String[] COUNTER_NAMES = {
+            "entities", "candidate pairs", "sat tests", "sat hits",
+            "particles spawned"
+    };
+
+    // frames kept per phase, four seconds at 60 fps
+    public static final int DEFAULT_WINDOW = 240;
+
+    // static methods ----------------------------------------------------------
+
+    public static String phaseName(int phase) {
+        return PHASE_NAMES[phase];
+    }
+
+    public static String counterName(int counter) {
+        return COUNTER_NAMES[counter];
+    }
+
+    // instance vars -----------------------------------------------------------
+
+    private boolean enabled = true;
+
+    // this frame's running totals
+    private long[] started = new long[NUM_PHASES];
+    private long[] frameNanos = new long[NUM_PHASES];
+    private boolean[] ran = new boolean[NUM_PHASES];
+    private long[] counts = new long[NUM_COUNTERS];
+
+    // the last finished frame's counters
+    private long[] lastCounts = new long[NUM_COUNTERS];
+
+    // each phase's rolling window, a ring of per frame nanoseconds
+    private final int window;
+    private long[][] samples;
+    private int[] next = new int[NUM_PHASES];
+    private int[] filled = new int[NUM_PHASES];
+
+    // sorted copy of a window for percentiles
+    private long[] sorted;
+
+    private long frames;
+
+    // constructors ------------------------------------------------------------
+
+    public Profiler() {
+        this(DEFAULT_WINDOW);
+    }
+
+    public Profiler(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be at least 1.");
+        }
+        this.window = window;
+        samples = new long[NUM_PHASES][window];
+        sorted = new long[window];
+    }
+
+    // getters -----------------------------------------------------------------
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    // return the number of frames finished so far
+    public long getFrames() {
+        return frames;
+    }
+
+    // return the number of frames in a phase's window
+    public int getSamples(int phase) {
+        return filled[phase];
+    }
+
+    // return a counter's total for the last finished frame
+    public long getCount(int counter) {
+        return lastCounts[counter];
+    }
+
+    // return the fastest frame in the window in ms, 0 if it's empty
+    public double getMin(int phase) {
+        if (filled[phase] == 0) {
+            return 0;
+        }
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < filled[phase]; i++) {
+            min = Math.min(min, samples[phase][i]);
+        }
+        return min / 1.0e6;
+    }
+
+    // return the mean frame in the window in ms, 0 if it's empty
+    public double getMean(int phase) {
+        if (filled[phase] == 0) {
+            return 0;
+        }
+        long sum = 0;
+        for (int i = 0; i < filled[phase]; i++) {
+            sum += samples[phase][i];
+        }
+        return sum / 1.0e6 / filled[phase];
+    }
+
+    // return the 99th percentile frame in the window in ms, 0 if it's empty
+    public double getP99(int phase) {
+        int n = filled[phase];
+        if (n == 0) {
+            return 0;
+        }
+        System.arraycopy(samples[phase], 0, sorted, 0, n);
+        Arrays.sort(sorted, 0, n);
+        int i = (int) Math.ceil(0.99 * n) - 1;
+        return sorted[Math.max(0, i)] / 1.0e6;
+    }
+
+    // return the slowest frame in the window in ms, 0 if it's empty
+    public double getMax(int phase) {
+        long max = 0;
+        for (int i = 0; i < filled[phase]; i++) {
+            max = Math.max(max, samples[phase][i]);
+        }
+        return max / 1.0e6;
+    }
+
+    // setters -----------------------------------------------------------------
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // other methods -----------------------------------------------------------
+
+    // finish the last frame and start a new one
+    public void beginFrame() {
+        for (int phase = 0; phase < NUM_PHASES; phase++) {
+            // phases that didn't run, like steps on a short frame, leave
+            // their window alone
+            if (ran[phase]) {
+                samples[phase][next[phase]] = frameNanos[phase];
+                next[phase] = (next[phase] + 1) % window;
+                filled[phase] = Math.min(filled[phase] + 1, window);
+            }
+            frameNanos[phase] = 0;
+            ran[phase] = false;
+        }
+        for (int c = 0; c < NUM_COUNTERS; c++) {
+            lastCounts[c] = counts[c];
+            counts[c] = 0;
+        }
+        frames++;
+    }
+
+    public void start(int phase) {
+        if (enabled) {
+            started[phase] = System.nanoTime();
+        }
+    }
+
+    public void stop(int phase) {
+        if (enabled) {
+            frameNanos[phase] += System.nanoTime() - started[phase];
+            ran[phase] = true;
+        }
+    }
+
+    // add to a counter for this frame
+    public void count(int counter, long n) {
+        counts[counter] += n;
+    }
+
+    // set a counter for this frame, for things that are a level not a tally
+    public void set(int counter, long n) {
+        counts[counter] = n;
+    }
+
+    // empty every window and counter
+    public void clear() {
+        for (int phase = 0; phase < NUM_PHASES; phase++) {
+            frameNanos[phase] = 0;
+            ran[phase] = false;
+            next[phase] = 0;
+            filled[phase] = 0;
+        }
+        Arrays.fill(counts, 0);
+        Arrays.fill(lastCounts, 0);
+        frames = 0;
+    }
+
+    // write the report a line at a time down from a point, top left
+    // aligned, with the renderer's current color and font
+    public void draw(double x, double y, double lineHeight) {
+        Renderer renderer = Renderer.current();
+        renderer.textLeft(x, y, String.format("%-12s %6s %6s %6s %6s",
+                                              "ms", "min", "mean", "p99",
+                                              "max"));
+        for (int phase = 0; phase < NUM_PHASES; phase++) {
+            y -= lineHeight;
+            renderer.textLeft(x, y, phaseLine(phase));
+        }
+        for (int c = 0; c < NUM_COUNTERS; c++) {
+            y -= lineHeight;
+            renderer.textLeft(x, y, String.format("%-18s %8d",
+                                                  COUNTER_NAMES[c],
+                                                  lastCounts[c]));
+        }
+    }
+
+    private String phaseLine(int phase) {
+        return String.format("%-12s %6.2f %6.2f %6.2f %6.2f",
+                             PHASE_NAMES[phase], getMin(phase),
+                             getMean(phase), getP99(phase), getMax(phase));
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("phase times over the last %d frames:%n",
+                                window));
+        sb.append(String.format("%-12s %6s %6s %6s %6s%n", "ms", "min",
+                                "mean", "p99", "max"));
+        for (int phase = 0; phase < NUM_PHASES; phase++) {
+            sb.append(phaseLine(phase)).append(String.format("%n"));
+        }
+        sb.append(String.format("last frame:%n"));
+        for (int c = 0; c < NUM_COUNTERS; c++) {
+            sb.append(String.format("%-18s %8d%n", COUNTER_NAMES[c],
+                                    lastCounts[c]));
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) {
+        Profiler profiler = new Profiler(100);
+        for (int i = 0; i < 500; i++) {
+            profiler.beginFrame();
+            profiler.start(UPDATE);
+            double x = 0;
+            for (int j = 0; j < 1000 * (i % 7 + 1); j++) {
+                x += Math.sqrt(j);
+            }
+            profiler.stop(UPDATE);
+            profiler.count(SAT_TESTS, (long) x % 10);
+        }
+        profiler.beginFrame();
+        StdOut.print(profiler);
+    }
+}
@@ -140,6 +140,17 @@ public class Rectangle {
         }
     }
 
+    // same as above but for parallel x and y arrays
+    public void reencompass(double[] x, double[] y) {
+        lft = x[0];
+        rht = x[0];
+        top = y[0];
+        bot = y[0];
+        for (int i = 1; i < x.length; i++) {
+            encompass(x[i], y[i]);
+        }
+    }
+
     // draw method
     public void draw(Vector scroll) {
         double[] x = { lft, lft, rht, rht };
@@ -148,13 +159,13 @@ public class Rectangle {
             x[i] -= scroll.x;
             y[i] -= scroll.y;
         }
-        StdDraw.polygon(x, y);
+        Renderer.current().polygon(x, y);
     }
 
     // debug drawing method
     public void drawDebug(Vector scroll) {
         draw(scroll);
-        StdDraw.circle(lft + width() / 2, bot + height() / 2, 0.1);
+        Renderer.current().circle(lft + width() / 2, bot + height() / 2, 0.1);
     }
 
     public String toString() {
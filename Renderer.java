@@ -0,0 +1,830 @@
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/*
+Draw calls get recorded into a command buffer instead of going straight to
+StdDraw. On flush the commands are sorted so ones with the same pen color,
+radius and font end up next to each other (inside their layer), then played
+back by a backend in one pass. This base class is the null backend, it records
+and sorts but never draws anything, so drawing cost can be measured apart from
+the rest of a frame. A Pipeline can instead hand each recorded frame to another
+thread to play, so drawing one frame overlaps simulating the next.
+ */
+public class Renderer {
+
+    // static vars -------------------------------------------------------------
+
+    // layers are drawn in this order, nothing moves between layers
+    public static final int BACKGROUND = 0;
+    public static final int UNDERLINE = 1;
+    public static final int ENTITIES = 2;
+    public static final int EFFECTS = 3;
+    public static final int HUD = 4;
+
+    // layers where draw order matters more than batching, e.g. text shadows
+    private static final boolean[] ORDERED = { true, false, false, false, true };
+
+    // command types
+    private static final int POLYGON = 0;
+    private static final int FILLED_POLYGON = 1;
+    private static final int CIRCLE = 2;
+    private static final int LINE = 3;
+    private static final int TEXT = 4;
+    private static final int TEXT_LEFT = 5;
+    private static final int GLOW = 6;
+    private static final int IMAGE = 7;
+
+    private static final double DEFAULT_PEN_RADIUS = 0.002;
+
+    // what everything draws to
+    private static Renderer current = new StdDrawRenderer();
+
+    // static methods ----------------------------------------------------------
+
+    public static Renderer current() {
+        return current;
+    }
+
+    // swap the renderer everything draws to
+    public static void use(Renderer renderer) {
+        if (renderer == null) {
+            throw new IllegalArgumentException("Renderer can't be null.");
+        }
+        current = renderer;
+    }
+
+    // return a renderer by name, STDDRAW or NULL
+    public static Renderer create(String name) {
+        switch (name.toUpperCase()) {
+            case "STDDRAW":
+                return new StdDrawRenderer();
+            case "NULL":
+                return new Renderer();
+            default:
+                throw new IllegalArgumentException("Unknown renderer: " + name);
+        }
+    }
+
+    // instance vars -----------------------------------------------------------
+
+    // the pen, same idea as StdDraw's
+    private Color color = Color.BLACK;
+    private double penRadius = DEFAULT_PEN_RADIUS;
+    private Font font;
+    private int layer = ENTITIES;
+
+    // ids of the pen state in the frame being recorded, looked up again only
+    // when the pen changes or a new frame starts
+    private int colorId = -1;
+    private int radiusId = -1;
+    private int fontId = -1;
+
+    // the frame draw calls are recorded into
+    private Frame frame = new Frame();
+
+    // stats about the last frame played
+    private int lastCommands;
+    private int lastStateChanges;
+
+    // constructors ------------------------------------------------------------
+
+    public Renderer() {
+    }
+
+    // getters -----------------------------------------------------------------
+
+    public double getPenRadius() {
+        return penRadius;
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    public int getLayer() {
+        return layer;
+    }
+
+    // return the number of commands played by the last flush
+    public int getLastCommands() {
+        return lastCommands;
+    }
+
+    // return the number of pen changes the last flush needed
+    public int getLastStateChanges() {
+        return lastStateChanges;
+    }
+
+    // setters -----------------------------------------------------------------
+
+    public void setColor(Color color) {
+        if (!color.equals(this.color)) {
+            this.color = color;
+            colorId = -1;
+        }
+    }
+
+    public void setPenRadius(double penRadius) {
+        if (penRadius != this.penRadius) {
+            this.penRadius = penRadius;
+            radiusId = -1;
+        }
+    }
+
+    public void setFont(Font font) {
+        if (font != this.font) {
+            this.font = font;
+            fontId = -1;
+        }
+    }
+
+    public void setLayer(int layer) {
+        if (layer < BACKGROUND || layer > HUD) {
+            throw new IllegalArgumentException("Unknown layer: " + layer);
+        }
+        this.layer = layer;
+    }
+
+    // other methods -----------------------------------------------------------
+
+    // clear to a color before anything else on the next flush
+    public void clear(Color color) {
+        frame.clearColor = color;
+    }
+
+    public void polygon(double[] x, double[] y) {
+        addPolygon(POLYGON, x, y);
+    }
+
+    public void filledPolygon(double[] x, double[] y) {
+        addPolygon(FILLED_POLYGON, x, y);
+    }
+
+    public void circle(double x, double y, double radius) {
+        int c = addCommand(CIRCLE, 3);
+        double[] coords = frame.coords;
+        coords[c] = x;
+        coords[c + 1] = y;
+        coords[c + 2] = radius;
+    }
+
+    public void line(double x0, double y0, double x1, double y1) {
+        int c = addCommand(LINE, 4);
+        double[] coords = frame.coords;
+        coords[c] = x0;
+        coords[c + 1] = y0;
+        coords[c + 2] = x1;
+        coords[c + 3] = y1;
+    }
+
+    // rings of growing pen radius around a circle, starting at the current
+    // pen radius, each one half again as wide as the last
+    public void glow(double x, double y, double radius, int rings) {
+        int c = addCommand(GLOW, 4);
+        double[] coords = frame.coords;
+        coords[c] = x;
+        coords[c + 1] = y;
+        coords[c + 2] = radius;
+        coords[c + 3] = rings;
+    }
+
+    // an image stretched over a w by h box centered on x, y, drawn with some
+    // opacity. The frame keeps a reference, so the image mustn't change
+    // until the frame is played
+    public void image(double x, double y, double w, double h, Image image,
+                      double alpha) {
+        int c = addCommand(IMAGE, 5);
+        double[] coords = frame.coords;
+        coords[c] = x;
+        coords[c + 1] = y;
+        coords[c + 2] = w;
+        coords[c + 3] = h;
+        coords[c + 4] = alpha;
+        frame.images[frame.count - 1] = image;
+    }
+
+    // return if image commands get drawn, callers can draw something else
+    // when they won't
+    public boolean canDrawImages() {
+        return true;
+    }
+
+    // centered text
+    public void text(double x, double y, String text) {
+        addText(TEXT, x, y, text);
+    }
+
+    // left aligned text
+    public void textLeft(double x, double y, String text) {
+        addText(TEXT_LEFT, x, y, text);
+    }
+
+    // play back everything recorded since the last flush
+    public void flush() {
+        play(frame);
+        frame.reset();
+        colorId = radiusId = fontId = -1;
+    }
+
+    // hand back the frame recorded so far and start recording into another,
+    // the returned frame isn't touched again until it comes back through here
+    public Frame swapFrame(Frame next) {
+        next.reset();
+        Frame done = frame;
+        frame = next;
+        colorId = radiusId = fontId = -1;
+        return done;
+    }
+
+    // sort a frame and play it with the backend, only reads the frame so the
+    // thread recording the next one never gets in the way
+    public void play(Frame f) {
+        int count = f.count;
+        long[] keys = f.keys;
+        for (int i = 0; i < count; i++) {
+            int l = f.layers[i];
+            long key = (long) l << 52;
+            if (!ORDERED[l]) {
+                key |= (long) Math.min(f.colorOf[i], 0xFFFF) << 36;
+                key |= (long) Math.min(f.radiusOf[i], 0xFF) << 28;
+                key |= (long) Math.min(f.fontOf[i], 0xF) << 24;
+            }
+            keys[i] = key | i;
+        }
+        Arrays.sort(keys, 0, count);
+
+        begin(f.clearColor);
+        int prevColor = -1;
+        int prevRadius = -1;
+        int prevFont = -1;
+        int stateChanges = 0;
+        for (int k = 0; k < count; k++) {
+            int i = (int) (keys[k] & 0xFFFFFF);
+
+            // only touch the pen when it actually changes
+            if (f.colorOf[i] != prevColor) {
+                prevColor = f.colorOf[i];
+                applyColor(f.colors[prevColor]);
+                stateChanges++;
+            }
+            if (f.radiusOf[i] != prevRadius) {
+                prevRadius = f.radiusOf[i];
+                applyPenRadius(f.radii[prevRadius]);
+                stateChanges++;
+            }
+            if (f.fontOf[i] != prevFont) {
+                prevFont = f.fontOf[i];
+                if (f.fonts[prevFont] != null) {
+                    applyFont(f.fonts[prevFont]);
+                    stateChanges++;
+                }
+            }
+
+            play(f, i);
+        }
+        end();
+
+        lastCommands = count;
+        lastStateChanges = stateChanges;
+    }
+
+    // draw one command with the backend
+    private void play(Frame f, int i) {
+        double[] coords = f.coords;
+        int c = f.coordStart[i];
+        int n = f.coordCount[i];
+        switch (f.types[i]) {
+            case POLYGON:
+                drawPolygon(coords, c, n / 2, false);
+                break;
+            case FILLED_POLYGON:
+                drawPolygon(coords, c, n / 2, true);
+                break;
+            case CIRCLE:
+                drawCircle(coords[c], coords[c + 1], coords[c + 2]);
+                break;
+            case LINE:
+                drawLine(coords[c], coords[c + 1], coords[c + 2], coords[c + 3]);
+                break;
+            case TEXT:
+                drawText(coords[c], coords[c + 1], f.texts[i], false);
+                break;
+            case TEXT_LEFT:
+                drawText(coords[c], coords[c + 1], f.texts[i], true);
+                break;
+            case GLOW:
+                drawGlow(coords[c], coords[c + 1], coords[c + 2],
+                         (int) coords[c + 3], f.colors[f.colorOf[i]],
+                         f.radii[f.radiusOf[i]]);
+                break;
+            case IMAGE:
+                drawImage(coords[c], coords[c + 1], coords[c + 2],
+                          coords[c + 3], f.images[i], coords[c + 4]);
+                break;
+            default:
+                throw new RuntimeException("Bad draw command: " + f.types[i]);
+        }
+    }
+
+    private void addPolygon(int type, double[] x, double[] y) {
+        if (x.length != y.length) {
+            throw new IllegalArgumentException("Polygon x and y lengths differ.");
+        }
+        int n = x.length;
+        int c = addCommand(type, n * 2);
+        System.arraycopy(x, 0, frame.coords, c, n);
+        System.arraycopy(y, 0, frame.coords, c + n, n);
+    }
+
+    private void addText(int type, double x, double y, String text) {
+        int c = addCommand(type, 2);
+        frame.coords[c] = x;
+        frame.coords[c + 1] = y;
+        frame.texts[frame.count - 1] = text;
+    }
+
+    // add a command with the current pen, returns where its coordinates go
+    private int addCommand(int type, int coordsNeeded) {
+        if (colorId < 0) {
+            colorId = frame.colorId(color);
+        }
+        if (radiusId < 0) {
+            radiusId = frame.radiusId(penRadius);
+        }
+        if (fontId < 0) {
+            fontId = frame.fontId(font);
+        }
+        return frame.add(type, layer, colorId, radiusId, fontId, coordsNeeded);
+    }
+
+    // backend hooks, all no-ops here ------------------------------------------
+
+    // called before a flush plays anything, clear is null to not clear
+    protected void begin(Color clear) {
+    }
+
+    // called after a flush played everything
+    protected void end() {
+    }
+
+    protected void applyColor(Color color) {
+    }
+
+    protected void applyPenRadius(double radius) {
+    }
+
+    protected void applyFont(Font font) {
+    }
+
+    // polygon vertices are c[start..start + n) for x then the next n for y
+    protected void drawPolygon(double[] c, int start, int n, boolean filled) {
+    }
+
+    protected void drawCircle(double x, double y, double radius) {
+    }
+
+    protected void drawLine(double x0, double y0, double x1, double y1) {
+    }
+
+    protected void drawText(double x, double y, String text, boolean left) {
+    }
+
+    // backends without sprites draw every ring, the pen is put back after
+    protected void drawGlow(double x, double y, double radius, int rings,
+                            Color color, double penRadius) {
+        double pen = penRadius;
+        for (int i = 0; i < rings; i++) {
+            drawCircle(x, y, radius);
+            pen *= 1.5;
+            applyPenRadius(pen);
+        }
+        applyPenRadius(penRadius);
+    }
+
+    protected void drawImage(double x, double y, double w, double h,
+                             Image image, double alpha) {
+    }
+
+    // subclasses --------------------------------------------------------------
+
+    // one frame of recorded commands, everything needed to draw it is baked
+    // in so it can be played on another thread while the next is recorded
+    public static class Frame {
+
+        // instance vars -------------------------------------------------------
+
+        // every pen state used in the frame, by id
+        private HashMap<Color, Integer> colorIds = new HashMap<>();
+        private Color[] colors = new Color[64];
+        private double[] radii = new double[16];
+        private int radiusCount;
+        private Font[] fonts = new Font[4];
+        private int fontCount;
+
+        // background to clear to first, null to not clear
+        private Color clearColor;
+
+        // commands
+        private int count;
+        private int[] types = new int[256];
+        private int[] layers = new int[256];
+        private int[] colorOf = new int[256];
+        private int[] radiusOf = new int[256];
+        private int[] fontOf = new int[256];
+        private int[] coordStart = new int[256];
+        private int[] coordCount = new int[256];
+        private String[] texts = new String[256];
+        private Image[] images = new Image[256];
+        private long[] keys = new long[256];
+
+        // all the coordinates, polygons store every x then every y
+        private double[] coords = new double[1024];
+        private int coordsUsed;
+
+        // getters -------------------------------------------------------------
+
+        public int size() {
+            return count;
+        }
+
+        // other methods -------------------------------------------------------
+
+        // empty the frame, keeps the arrays around for the next one
+        private void reset() {
+            Arrays.fill(texts, 0, count, null);
+            Arrays.fill(images, 0, count, null);
+            count = 0;
+            coordsUsed = 0;
+            clearColor = null;
+            Arrays.fill(colors, 0, colorIds.size(), null);
+            colorIds.clear();
+            radiusCount = 0;
+            fontCount = 0;
+        }
+
+        // add a command, returns where its coordinates start
+        private int add(int type, int layer, int colorId, int radiusId,
+                        int fontId, int coordsNeeded) {
+            if (count == types.length) {
+                grow();
+            }
+            int needed = coordsUsed + coordsNeeded;
+            if (needed > coords.length) {
+                coords = Arrays.copyOf(coords, Math.max(coords.length * 2,
+                                                        needed));
+            }
+            if (count > 0xFFFFFF) {
+                throw new RuntimeException("Too many draw commands.");
+            }
+
+            types[count] = type;
+            layers[count] = layer;
+            colorOf[count] = colorId;
+            radiusOf[count] = radiusId;
+            fontOf[count] = fontId;
+            coordStart[count] = coordsUsed;
+            coordCount[count] = coordsNeeded;
+            count++;
+
+            int start = coordsUsed;
+            coordsUsed += coordsNeeded;
+            return start;
+        }
+
+        private int colorId(Color color) {
+            Integer id = colorIds.get(color);
+            if (id == null) {
+                id = colorIds.size();
+                colorIds.put(color, id);
+                if (id == colors.length) {
+                    colors = Arrays.copyOf(colors, id * 2);
+                }
+                colors[id] = color;
+            }
+            return id;
+        }
+
+        private int radiusId(double penRadius) {
+            for (int i = 0; i < radiusCount; i++) {
+                if (radii[i] == penRadius) {
+                    return i;
+                }
+            }
+            if (radiusCount == radii.length) {
+                radii = Arrays.copyOf(radii, radiusCount * 2);
+            }
+            radii[radiusCount] = penRadius;
+            return radiusCount++;
+        }
+
+        private int fontId(Font font) {
+            for (int i = 0; i < fontCount; i++) {
+                if (fonts[i] == font) {
+                    return i;
+                }
+            }
+            if (fontCount == fonts.length) {
+                fonts = Arrays.copyOf(fonts, fontCount * 2);
+            }
+            fonts[fontCount] = font;
+            return fontCount++;
+        }
+
+        private void grow() {
+            int cap = types.length * 2;
+            types = Arrays.copyOf(types, cap);
+            layers = Arrays.copyOf(layers, cap);
+            colorOf = Arrays.copyOf(colorOf, cap);
+            radiusOf = Arrays.copyOf(radiusOf, cap);
+            fontOf = Arrays.copyOf(fontOf, cap);
+            coordStart = Arrays.copyOf(coordStart, cap);
+            coordCount = Arrays.copyOf(coordCount, cap);
+            texts = Arrays.copyOf(texts, cap);
+            images = Arrays.copyOf(images, cap);
+            keys = Arrays.copyOf(keys, cap);
+        }
+    }
+
+    // passes finished frames from the thread recording them to the thread
+    // playing them. There are three frames, one being recorded, one being
+    // played and the newest finished one, so neither thread waits on the
+    // other. A finished frame that gets replaced before it's played is
+    // dropped, the player always gets the newest
+    public static class Pipeline {
+
+        // instance vars -------------------------------------------------------
+
+        private final Renderer renderer;
+
+        // the newest finished frame if fresh, otherwise a free one
+        private Frame middle = new Frame();
+        private boolean fresh;
+
+        // only the playing thread touches this one
+        private Frame playing = new Frame();
+
+        private boolean closed;
+
+        // stats
+        private long published;
+        private long dropped;
+        private long played;
+
+        // constructors --------------------------------------------------------
+
+        public Pipeline(Renderer renderer) {
+            this.renderer = renderer;
+        }
+
+        // getters -------------------------------------------------------------
+
+        public synchronized long getPublished() {
+            return published;
+        }
+
+        public synchronized long getDropped() {
+            return dropped;
+        }
+
+        public synchronized long getPlayed() {
+            return played;
+        }
+
+        // other methods -------------------------------------------------------
+
+        // recording thread, finish the frame and start recording the next
+        public synchronized void publish() {
+            if (fresh) {
+                dropped++;
+            }
+            middle = renderer.swapFrame(middle);
+            fresh = true;
+            published++;
+            notifyAll();
+        }
+
+        // playing thread, wait for a finished frame then take it, returns
+        // null once closed
+        public synchronized Frame take() throws InterruptedException {
+            while (!fresh && !closed) {
+                wait();
+            }
+            if (!fresh) {
+                return null;
+            }
+            Frame f = middle;
+            middle = playing;
+            playing = f;
+            fresh = false;
+            played++;
+            return f;
+        }
+
+        // play frames as they come in until closed
+        public void run() {
+            try {
+                Frame f;
+                while ((f = take()) != null) {
+                    renderer.play(f);
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // start a thread that plays frames
+        public Thread start() {
+            Thread player = new Thread(this::run, "renderer");
+            player.setDaemon(true);
+            player.start();
+            return player;
+        }
+
+        // stop the player once it runs out of frames
+        public synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+    }
+
+    // plays commands back with StdDraw and shows the frame
+    public static class StdDrawRenderer extends Renderer {
+
+        // static vars ---------------------------------------------------------
+
+        // StdDraw only draws images loaded from files, so in memory images go
+        // straight onto its offscreen canvas, these are null if it can't be
+        // reached
+        private static final Field OFFSCREEN = stdDrawField("offscreen");
+        private static final Field WIDTH = stdDrawField("width");
+        private static final Field HEIGHT = stdDrawField("height");
+        private static final Field XMIN = stdDrawField("xmin");
+        private static final Field XMAX = stdDrawField("xmax");
+        private static final Field YMIN = stdDrawField("ymin");
+        private static final Field YMAX = stdDrawField("ymax");
+
+        // static methods ------------------------------------------------------
+
+        private static Field stdDrawField(String name) {
+            try {
+                Field field = StdDraw.class.getDeclaredField(name);
+                field.setAccessible(true);
+                return field;
+            }
+            catch (ReflectiveOperationException | RuntimeException e) {
+                return null;
+            }
+        }
+
+        // instance vars -------------------------------------------------------
+
+        // StdDraw wants whole arrays, so keep one pair per vertex count
+        private double[][] bufX = new double[16][];
+        private double[][] bufY = new double[16][];
+
+        // glows get drawn as pre-rendered images
+        private GlowCache glows = new GlowCache();
+
+        // getters -------------------------------------------------------------
+
+        public GlowCache getGlowCache() {
+            return glows;
+        }
+
+        // other methods -------------------------------------------------------
+
+        protected void begin(Color clear) {
+            if (clear != null) {
+                StdDraw.clear(clear);
+            }
+        }
+
+        protected void end() {
+            StdDraw.show();
+        }
+
+        protected void applyColor(Color color) {
+            StdDraw.setPenColor(color);
+        }
+
+        protected void applyPenRadius(double radius) {
+            StdDraw.setPenRadius(radius);
+        }
+
+        protected void applyFont(Font font) {
+            StdDraw.setFont(font);
+        }
+
+        protected void drawPolygon(double[] c, int start, int n,
+                                   boolean filled) {
+            if (n >= bufX.length) {
+                bufX = Arrays.copyOf(bufX, n * 2);
+                bufY = Arrays.copyOf(bufY, n * 2);
+            }
+            if (bufX[n] == null) {
+                bufX[n] = new double[n];
+                bufY[n] = new double[n];
+            }
+            double[] x = bufX[n];
+            double[] y = bufY[n];
+            System.arraycopy(c, start, x, 0, n);
+            System.arraycopy(c, start + n, y, 0, n);
+
+            if (filled) {
+                StdDraw.filledPolygon(x, y);
+            }
+            else {
+                StdDraw.polygon(x, y);
+            }
+        }
+
+        protected void drawCircle(double x, double y, double radius) {
+            StdDraw.circle(x, y, radius);
+        }
+
+        protected void drawLine(double x0, double y0, double x1, double y1) {
+            StdDraw.line(x0, y0, x1, y1);
+        }
+
+        protected void drawText(double x, double y, String text,
+                                boolean left) {
+            if (left) {
+                StdDraw.textLeft(x, y, text);
+            }
+            else {
+                StdDraw.text(x, y, text);
+            }
+        }
+
+        protected void drawGlow(double x, double y, double radius, int rings,
+                                Color color, double penRadius) {
+            if (!canDrawImages()) {
+                super.drawGlow(x, y, radius, rings, color, penRadius);
+                return;
+            }
+            GlowCache.Sprite sprite =
+                    glows.get(color, radius, penRadius, rings);
+            double size = sprite.sizeFor(radius);
+            drawImage(x, y, size, size, sprite.getImage(), 1);
+        }
+
+        public boolean canDrawImages() {
+            return OFFSCREEN != null && WIDTH != null && HEIGHT != null &&
+                    XMIN != null && XMAX != null && YMIN != null &&
+                    YMAX != null;
+        }
+
+        protected void drawImage(double x, double y, double w, double h,
+                                 Image image, double alpha) {
+            if (!canDrawImages()) {
+                return;
+            }
+            try {
+                // same user to pixel mapping StdDraw uses
+                Graphics2D g = (Graphics2D) OFFSCREEN.get(null);
+                int width = WIDTH.getInt(null);
+                int height = HEIGHT.getInt(null);
+                double xmin = XMIN.getDouble(null);
+                double xmax = XMAX.getDouble(null);
+                double ymin = YMIN.getDouble(null);
+                double ymax = YMAX.getDouble(null);
+
+                double px = width * (x - w / 2 - xmin) / (xmax - xmin);
+                double py = height * (ymax - (y + h / 2)) / (ymax - ymin);
+                double pw = w * width / Math.abs(xmax - xmin);
+                double ph = h * height / Math.abs(ymax - ymin);
+
+                Composite composite = g.getComposite();
+                if (alpha < 1) {
+                    g.setComposite(AlphaComposite.getInstance(
+                            AlphaComposite.SRC_OVER, (float) alpha));
+                }
+                g.drawImage(image, (int) Math.round(px), (int) Math.round(py),
+                            (int) Math.round(pw), (int) Math.round(ph), null);
+                g.setComposite(composite);
+            }
+            catch (IllegalAccessException e) {
+                throw new RuntimeException("Can't draw to StdDraw.", e);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        Renderer r = new Renderer();
+        for (int i = 0; i < 1000; i++) {
+            r.setColor(i % 2 == 0 ? Color.RED : Color.BLUE);
+            r.circle(i, i, 1);
+        }
+        r.flush();
+        StdOut.println(r.getLastCommands() + " commands, " +
+                               r.getLastStateChanges() + " pen changes");
+    }
+}
@@ -0,0 +1,376 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+Seeds a world with a fixed population through the entity handler's add
+methods, then steps it headless for a number of ticks timing every update,
+draw commands included. Between ticks anything that died or drifted off gets
+replaced, so the population holds. Scenarios meant to play out like the
+cascade only get their bullets topped up, and end as soon as there are no
+asteroids or enemies left, so an empty world doesn't water down the numbers.
+Each scenario reports its tick time percentiles and ticks per second next to
+the population it asked for and the one it averaged, since the cost comes from
+splits, drops and collisions feeding each other rather than from any one call.
+A short untimed run of the same world goes first so the timed one isn't
+measuring the jit.
+
+usage: java Scenarios [ticks] [seed] [scenario...] [asteroids=N] [enemies=N]
+                      [bullets=N] [radius=R] [DRAIN] [BRUTE|HASH|SAP]
+                      [STORE] [PARALLEL]
+
+Any population argument replaces the built in scenarios with one custom
+world, otherwise the named scenarios run, or all of them if none are named.
+DRAIN only tops up a custom world's bullets and ends it once the rest are
+gone.
+ */
+public class Scenarios {
+
+    // static vars -------------------------------------------------------------
+
+    private static final int DEFAULT_TICKS = 2000;
+    private static final int WARMUP_TICKS = 300;
+
+    // asteroid radius range, the default one matches the game's spawns
+    private static final double SMALL_RADIUS = Constants.SCALE * 0.03;
+    private static final double BIG_RADIUS = Constants.SCALE * 0.1;
+
+    // the player just sits there, no keys held
+    private static final String IDLE_SCRIPT = "-";
+
+    // static methods ----------------------------------------------------------
+
+    private static ArrayList<Scenario> builtIn() {
+        ArrayList<Scenario> scenarios = new ArrayList<>();
+        scenarios.add(new Scenario("asteroids", 500, 0, 0, SMALL_RADIUS,
+                                   true));
+        scenarios.add(new Scenario("enemies", 0, 50, 0, SMALL_RADIUS, true));
+        scenarios.add(new Scenario("bullets", 0, 0, 2000, SMALL_RADIUS,
+                                   true));
+        scenarios.add(new Scenario("mixed", 500, 50, 2000, SMALL_RADIUS,
+                                   true));
+
+        // big asteroids in a steady hail of bullets, every kill splits into
+        // children that get shot and split again until none are left
+        scenarios.add(new Scenario("cascade", 60, 0, 400, BIG_RADIUS,
+                                   false));
+        return scenarios;
+    }
+
+    // return the value of the p quantile of sorted values
+    private static long percentile(long[] sorted, double p) {
+        int i = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(i, sorted.length - 1))];
+    }
+
+    // subclasses --------------------------------------------------------------
+
+    // a starting population, everything placed at random on the screen
+    public static class Scenario {
+
+        // instance vars -------------------------------------------------------
+
+        private final String name;
+        private final int asteroids;
+        private final int enemies;
+        private final int bullets;
+        private final double radius;
+
+        // top the asteroids and enemies back up between ticks, bullets
+        // always are
+        private final boolean refill;
+
+        // constructors --------------------------------------------------------
+
+        public Scenario(String name, int asteroids, int enemies, int bullets,
+                        double radius, boolean refill) {
+            if (asteroids < 0 || enemies < 0 || bullets < 0) {
+                throw new IllegalArgumentException(
+                        "Populations must be >= 0.");
+            }
+            if (radius <= 0) {
+                throw new IllegalArgumentException("Radius must be > 0.");
+            }
+            this.name = name;
+            this.asteroids = asteroids;
+            this.enemies = enemies;
+            this.bullets = bullets;
+            this.radius = radius;
+            this.refill = refill;
+        }
+
+        // getters -------------------------------------------------------------
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean refills() {
+            return refill;
+        }
+
+        // return if there's nothing left to shoot, only a world that isn't
+        // refilled gets there
+        public boolean isBurnedOut(EntityHandler eHandler) {
+            return eHandler.getNumberOfAsteroids() == 0 &&
+                    eHandler.getNumberOfEnemies() == 0;
+        }
+
+        // other methods -------------------------------------------------------
+
+        // add whatever a handler is short of, asteroid radii run from radius
+        // up to twice it
+        public void populate(EntityHandler eHandler, Player p) {
+            populateTargets(eHandler);
+            populateBullets(eHandler, p);
+        }
+
+        public void populateTargets(EntityHandler eHandler) {
+            double scale = Constants.SCALE;
+            for (int i = eHandler.getNumberOfAsteroids(); i < asteroids; i++) {
+                Vector vel = new Vector(StdRandom.uniform() - 0.5,
+                                        StdRandom.uniform() - 0.5);
+                double r = StdRandom.uniform(radius, radius * 2);
+                eHandler.addAsteroid(Asteroid.genAsteroid(
+                        StdRandom.uniform(0.0, scale),
+                        StdRandom.uniform(0.0, scale), vel, r));
+            }
+            for (int i = eHandler.getNumberOfEnemies(); i < enemies; i++) {
+                eHandler.addEnemy(new Enemy(StdRandom.uniform(0.0, scale),
+                                            StdRandom.uniform(0.0, scale),
+                                            Constants.ENEMY_SIZE));
+            }
+        }
+
+        // the player's bullets, so they score and split asteroids
+        public void populateBullets(EntityHandler eHandler, Player p) {
+            double scale = Constants.SCALE;
+            int i = eHandler.getNumberOfProjectiles();
+            for (; i < bullets; i++) {
+                Point pos = new Point(StdRandom.uniform(0.0, scale),
+                                      StdRandom.uniform(0.0, scale));
+                eHandler.addProjectile(new Bullet(pos,
+                                                  StdRandom.uniform(0.0, 360),
+                                                  p.projSpd, p.dmg,
+                                                  Constants.PLAYER_TAG,
+                                                  Constants.PLAYER_GLOW));
+            }
+        }
+
+        public String toString() {
+            return String.format("%s (%d asteroids, %d enemies, %d bullets%s)",
+                                 name, asteroids, enemies, bullets,
+                                 refill ? "" : ", only bullets refilled");
+        }
+    }
+
+    // what one run of a scenario measured
+    public static class Result {
+
+        // instance vars -------------------------------------------------------
+
+        // nanoseconds each tick's update took, for the ticks that ran
+        private final long[] tickNanos;
+        private int ticks;
+        private long totalNanos;
+
+        // live counts summed over every tick, and the peak
+        private long entitySum;
+        private long projectileSum;
+        private int peakEntities;
+
+        // constructors --------------------------------------------------------
+
+        private Result(int ticks) {
+            tickNanos = new long[ticks];
+        }
+
+        // other methods -------------------------------------------------------
+
+        private void record(int tick, long nanos, EntityHandler eHandler) {
+            tickNanos[tick] = nanos;
+            ticks = tick + 1;
+            totalNanos += nanos;
+            int entities = eHandler.getNumberOfEntities();
+            entitySum += entities;
+            projectileSum += eHandler.getNumberOfProjectiles();
+            peakEntities = Math.max(peakEntities, entities);
+        }
+
+        public String toString() {
+            long[] sorted = Arrays.copyOf(tickNanos, ticks);
+            Arrays.sort(sorted);
+            String ran = ticks == tickNanos.length ? "" : String.format(
+                    "  burned out after %d of %d ticks%n", ticks,
+                    tickNanos.length);
+            return ran + String.format(
+                    "  entities: %.1f mean, %d peak, projectiles: %.1f mean%n" +
+                            "  tick ms: p50 %.3f, p95 %.3f, p99 %.3f, " +
+                            "max %.3f%n  tps: %.1f%n",
+                    (double) entitySum / ticks, peakEntities,
+                    (double) projectileSum / ticks,
+                    percentile(sorted, 0.50) / 1.0e6,
+                    percentile(sorted, 0.95) / 1.0e6,
+                    percentile(sorted, 0.99) / 1.0e6,
+                    sorted[ticks - 1] / 1.0e6,
+                    ticks / (totalNanos / 1.0e9));
+        }
+    }
+
+    // settings shared by every run
+    private static class Runner {
+
+        // instance vars -------------------------------------------------------
+
+        private long seed;
+        private String broadphase = "HASH";
+        private boolean useStore;
+        private boolean parallel;
+
+        // other methods -------------------------------------------------------
+
+        // step a freshly seeded world for some ticks
+        private Result run(Scenario scenario, int ticks) {
+            Clock.ManualTimeSource time = new Clock.ManualTimeSource();
+            Clock.setTimeSource(time);
+            StdRandom.setSeed(seed);
+
+            // records draw commands without drawing them
+            Renderer renderer = new Renderer();
+            Renderer.use(renderer);
+
+            Player p = new Player();
+            p.setInput(new Player.Scripted(IDLE_SCRIPT));
+            Enemy.setTarget(p);
+            Enemy.startClock();
+
+            EntityHandler eHandler =
+                    new EntityHandler(p, Broadphase.create(broadphase));
+            if (useStore) {
+                eHandler.setEntityStore(new EntityStore());
+            }
+            if (parallel) {
+                eHandler.setNarrowPhase(new NarrowPhase());
+            }
+            scenario.populate(eHandler, p);
+
+            double scale = Constants.SCALE;
+            double dt = Constants.FIXED_DT;
+            Vector scroll = new Vector();
+            Clock clock = new Clock();
+            Result result = new Result(ticks);
+
+            clock.start();
+            for (int t = 0; t < ticks; t++) {
+                time.advance(dt * 60);
+                clock.tick();
+                eHandler.beginFrame(clock.getFrameTime());
+
+                long start = System.nanoTime();
+                eHandler.update(dt, scale, scroll);
+                result.record(t, System.nanoTime() - start, eHandler);
+
+                renderer.flush();
+                if (scenario.refills()) {
+                    scenario.populateTargets(eHandler);
+                }
+                else if (scenario.isBurnedOut(eHandler)) {
+                    break;
+                }
+                scenario.populateBullets(eHandler, p);
+            }
+            return result;
+        }
+    }
+
+    public static void main(String[] args) {
+        int ticks = DEFAULT_TICKS;
+        Runner runner = new Runner();
+        ArrayList<String> names = new ArrayList<>();
+
+        // a custom world, only used if some population is given
+        boolean custom = false;
+        int asteroids = 0;
+        int enemies = 0;
+        int bullets = 0;
+        double radius = SMALL_RADIUS;
+        boolean refill = true;
+
+        // numbers are ticks then seed, key=value sets a population
+        int numbers = 0;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.matches("-?\\d+")) {
+                if (numbers++ == 0) {
+                    ticks = Integer.parseInt(arg);
+                }
+                else {
+                    runner.seed = Long.parseLong(arg);
+                }
+            }
+            else if (arg.startsWith("asteroids=")) {
+                asteroids = Integer.parseInt(value);
+                custom = true;
+            }
+            else if (arg.startsWith("enemies=")) {
+                enemies = Integer.parseInt(value);
+                custom = true;
+            }
+            else if (arg.startsWith("bullets=")) {
+                bullets = Integer.parseInt(value);
+                custom = true;
+            }
+            else if (arg.startsWith("radius=")) {
+                radius = Double.parseDouble(value);
+                custom = true;
+            }
+            else if (arg.equalsIgnoreCase("DRAIN")) {
+                refill = false;
+            }
+            else if (arg.equalsIgnoreCase("STORE")) {
+                runner.useStore = true;
+            }
+            else if (arg.equalsIgnoreCase("PARALLEL")) {
+                runner.parallel = true;
+            }
+            else if (arg.equalsIgnoreCase("BRUTE") ||
+                    arg.equalsIgnoreCase("HASH") ||
+                    arg.equalsIgnoreCase("SAP")) {
+                runner.broadphase = arg;
+            }
+            else {
+                names.add(arg.toLowerCase());
+            }
+        }
+        if (ticks < 1) {
+            throw new IllegalArgumentException("Ticks must be >= 1.");
+        }
+
+        ArrayList<Scenario> scenarios = new ArrayList<>();
+        if (custom) {
+            scenarios.add(new Scenario("custom", asteroids, enemies, bullets,
+                                       radius, refill));
+        }
+        else {
+            for (Scenario s : builtIn()) {
+                if (names.isEmpty() || names.contains(s.getName())) {
+                    scenarios.add(s);
+                }
+            }
+            if (scenarios.isEmpty()) {
+                throw new IllegalArgumentException("Unknown scenario: " +
+                                                           names);
+            }
+        }
+
+        StdOut.printf("%d ticks, seed %d, %s broadphase%s%s%n", ticks,
+                      runner.seed, runner.broadphase.toUpperCase(),
+                      runner.useStore ? ", store" : "",
+                      runner.parallel ? ", parallel" : "");
+        for (Scenario s : scenarios) {
+            runner.run(s, Math.min(ticks, WARMUP_TICKS));
+            Result result = runner.run(s, ticks);
+            StdOut.println(s);
+            StdOut.print(result);
+        }
+    }
+}
@@ -3,6 +3,10 @@ import java.awt.event.KeyEvent;
 
 public class SharpShots {
 
+    // generator timer slots for asteroids and enemies
+    private static final int ASTEROID_KEY = 0;
+    private static final int ENEMY_KEY = 1;
+
     private static Point genPositionOffscreen(Vector scroll) {
         double x, y;
         double scale = Constants.SCALE;
@@ -63,6 +67,10 @@ public class SharpShots {
 
         double buffTextY = buffY + scale * 0.1;
 
+        // everything here is drawn in order on top of the background
+        Renderer renderer = Renderer.current();
+        renderer.setLayer(Renderer.HUD);
+
         Clock clock = new Clock();
 
         Vector scroll = new Vector();
@@ -73,54 +81,54 @@ public class SharpShots {
             double dt = clock.tick();
 
             // display instructions
-            StdDraw.clear(Constants.GAME_BG_COLOR);
+            renderer.clear(Constants.GAME_BG_COLOR);
 
-            StdDraw.setPenColor(Constants.PRIMARY_COLOR);
+            renderer.setColor(Constants.PRIMARY_COLOR);
 
-            StdDraw.setFont(bigFont);
+            renderer.setFont(bigFont);
 
             Point disp = new Point(scale * 0.05, scale * 0.95);
             double shiftDown = scale * 0.05;
-            StdDraw.text(scale * 0.5, disp.y, "Sharp Shots");
+            renderer.text(scale * 0.5, disp.y, "Sharp Shots");
 
-            StdDraw.setFont(smallFont);
+            renderer.setFont(smallFont);
 
             disp.y -= shiftDown;
-            StdDraw.textLeft(disp.x, disp.y, "To Play: ");
+            renderer.textLeft(disp.x, disp.y, "To Play: ");
             disp.y -= shiftDown;
-            StdDraw.textLeft(disp.x, disp.y, "- Thrust: W or UP arrow");
+            renderer.textLeft(disp.x, disp.y, "- Thrust: W or UP arrow");
             disp.y -= shiftDown;
-            StdDraw.textLeft(disp.x, disp.y, "- Turn:   A/D or LEFT/RIGHT arrow");
+            renderer.textLeft(disp.x, disp.y, "- Turn:   A/D or LEFT/RIGHT arrow");
             disp.y -= shiftDown;
-            StdDraw.textLeft(disp.x, disp.y, "- Reload: S or DOWN arrow");
+            renderer.textLeft(disp.x, disp.y, "- Reload: S or DOWN arrow");
             disp.y -= shiftDown;
-            StdDraw.textLeft(disp.x, disp.y, "- Shoot:  SPACE");
+            renderer.textLeft(disp.x, disp.y, "- Shoot:  SPACE");
 
-            StdDraw.text(scale * 0.5, scale * 0.1, "Press Enter to Play");
+            renderer.text(scale * 0.5, scale * 0.1, "Press Enter to Play");
 
-            StdDraw.text(scale * 0.33, scale * 0.65, "Asteroid:");
+            renderer.text(scale * 0.33, scale * 0.65, "Asteroid:");
 
             asteroid.draw(scroll);
             asteroid.rotate(5 * dt);
 
-            StdDraw.text(scale * 0.66, scale * 0.65, "Enemy:");
+            renderer.text(scale * 0.66, scale * 0.65, "Enemy:");
 
             enemy.draw(scroll);
             enemy.rotate(5 * dt);
 
 
-            StdDraw.text(scale * 0.5, scale * 0.4, "Buffs:");
+            renderer.text(scale * 0.5, scale * 0.4, "Buffs:");
 
             double dispX = scale * 0.15;
-            StdDraw.text(dispX, buffTextY, "HP:");
+            renderer.text(dispX, buffTextY, "HP:");
             dispX += buffXShift;
-            StdDraw.text(dispX, buffTextY, "DMG:");
+            renderer.text(dispX, buffTextY, "DMG:");
             dispX += buffXShift;
-            StdDraw.text(dispX, buffTextY, "SPD:");
+            renderer.text(dispX, buffTextY, "SPD:");
             dispX += buffXShift;
-            StdDraw.text(dispX, buffTextY, "RELOAD:");
+            renderer.text(dispX, buffTextY, "RELOAD:");
             dispX += buffXShift;
-            StdDraw.text(dispX, buffTextY, "HOMING:");
+            renderer.text(dispX, buffTextY, "HOMING:");
             hp.draw(scroll);
             dmg.draw(scroll);
             spd.draw(scroll);
@@ -128,7 +136,7 @@ public class SharpShots {
             rld.draw(scroll);
 
 
-            StdDraw.show();
+            renderer.flush();
 
             if (StdDraw.isKeyPressed(KeyEvent.VK_ENTER)) {
                 return;
@@ -136,36 +144,126 @@ public class SharpShots {
         }
     }
 
+    // make the timers that decide when things spawn
+    public static Clock.Timer genSpawnTimer() {
+        Clock.Timer TIMER = new Clock.Timer();
+        TIMER.addTimer(ASTEROID_KEY);
+        TIMER.addTimer(ENEMY_KEY);
+        TIMER.randomizeDuration(ASTEROID_KEY, 2000, 200);
+        TIMER.randomizeDuration(ENEMY_KEY, 5000, 200);
+        return TIMER;
+    }
+
+    // spawn asteroids and enemies just offscreen when their timers are done
+    public static void spawn(Clock.Timer TIMER, EntityHandler eHandler,
+                             Player p, Vector scroll, double mins) {
+        // randomly generate asteroids
+        if (TIMER.checkTimer(ASTEROID_KEY)) {
+            eHandler.addAsteroid(genAsteroid(scroll));
+            TIMER.randomizeDuration(ASTEROID_KEY, 800, 200);
+        }
+
+        // randomly generate enemies
+        if (TIMER.checkTimer(ENEMY_KEY) && p.getLives() > 0
+                && eHandler.getNumberOfEnemies() < 5) {
+            eHandler.addEnemy(genEnemy(scroll));
+            double lowerTime = Math.min(10000 / mins, 5000);
+            double upperTime = Math.min(16000 / mins, 8000);
+            TIMER.randomizeDuration(ENEMY_KEY, upperTime, lowerTime);
+        }
+    }
+
+    // move the scroll towards the player
+    public static void followPlayer(Vector scroll, Player p, double dt) {
+        double scale = Constants.SCALE;
+        double scrollSpeedFactor = 3;
+        Point pc = p.center();
+        scroll.x += (pc.x - scroll.x - scale / 2) / scrollSpeedFactor * dt;
+        scroll.y += (pc.y - scroll.y - scale / 2) / scrollSpeedFactor * dt;
+    }
+
     public static void main(String[] args) {
 
+        // pick the collision broadphase, BRUTE, HASH or SAP, STORE to move
+        // asteroids through the struct of arrays store, FIXED to step the
+        // simulation at a fixed rate instead of once per frame, PARALLEL to
+        // detect every collision up front on all cores, PIPELINED to draw
+        // each frame on its own thread while the next one is simulated,
+        // NULL to record draw commands without ever drawing them, LIVEBG to
+        // fill the background shapes every frame instead of caching them,
+        // LERPBG to fade between cached background refreshes and PROFILE to
+        // show how long each part of the frame takes
+        Broadphase broadphase = new Broadphase.SpatialHash();
+        boolean useStore = false;
+        boolean parallel = false;
+        boolean fixedStep = false;
+        boolean pipelined = false;
+        boolean liveBackground = false;
+        boolean lerpBackground = false;
+        boolean profile = false;
+        for (String arg : args) {
+            if (arg.equalsIgnoreCase("STORE")) {
+                useStore = true;
+            }
+            else if (arg.equalsIgnoreCase("FIXED")) {
+                fixedStep = true;
+            }
+            else if (arg.equalsIgnoreCase("PARALLEL")) {
+                parallel = true;
+            }
+            else if (arg.equalsIgnoreCase("PIPELINED")) {
+                pipelined = true;
+            }
+            else if (arg.equalsIgnoreCase("LIVEBG")) {
+                liveBackground = true;
+            }
+            else if (arg.equalsIgnoreCase("LERPBG")) {
+                lerpBackground = true;
+            }
+            else if (arg.equalsIgnoreCase("PROFILE")) {
+                profile = true;
+            }
+            else if (arg.equalsIgnoreCase("STDDRAW") ||
+                    arg.equalsIgnoreCase("NULL")) {
+                Renderer.use(Renderer.create(arg));
+            }
+            else {
+                broadphase = Broadphase.create(arg);
+            }
+        }
+
         // initialize stddraw stuff
         double scale = Constants.SCALE;
         StdDraw.setScale(0, scale);
         StdDraw.enableDoubleBuffering();
-        StdDraw.setPenRadius(0.002);
+        Renderer renderer = Renderer.current();
+        renderer.setPenRadius(0.002);
 
         // display beginning menu first
         displayStartScreen();
 
         // try to use cool font
         Font font = new Font("Courier New", Font.PLAIN, 30);
-        StdDraw.setFont(font);
+        renderer.setFont(font);
+
+        // this thread only records frames from here on, another plays them
+        Renderer.Pipeline pipeline = null;
+        if (pipelined) {
+            pipeline = new Renderer.Pipeline(renderer);
+            pipeline.start();
+        }
 
         // clock obj for delta time
         Clock clock = new Clock();
-        Clock.Timer TIMER = new Clock.Timer();
 
         // background stuff
         Background bg = new Background();
+        bg.setCached(!liveBackground);
+        bg.setInterpolate(lerpBackground);
+        bg.setPipelined(pipelined);
 
         // generator times for asteroids and enemies
-        String asteroidKey = "asteroids";
-        String enemyKey = "enemies";
-
-        TIMER.addTimer(asteroidKey);
-        TIMER.addTimer(enemyKey);
-        TIMER.randomizeDuration(asteroidKey, 2000, 200);
-        TIMER.randomizeDuration(enemyKey, 5000, 200);
+        Clock.Timer TIMER = genSpawnTimer();
 
         // create the player, also use this reference to refer the player
         Player p = new Player();
@@ -175,11 +273,24 @@ public class SharpShots {
         Enemy.startClock();
 
         // entity handler
-        EntityHandler eHandler = new EntityHandler(p);
+        EntityHandler eHandler = new EntityHandler(p, broadphase);
+        if (useStore) {
+            eHandler.setEntityStore(new EntityStore());
+        }
+        if (parallel) {
+            eHandler.setNarrowPhase(new NarrowPhase());
+        }
+        Profiler profiler = eHandler.getProfiler();
+        Font profileFont = new Font("Courier New", Font.PLAIN, 11);
 
         // scrolling values to follow the player around
         Vector scroll = new Vector();
-        double scrollSpeedFactor = 3;
+
+        // fixed step stuff, time not simulated yet and the scroll before the
+        // last step so drawing can land between steps
+        double accumulator = 0;
+        Vector prevScroll = new Vector();
+        Vector drawScroll = new Vector();
 
         // store the clock and game loop
         clock.start();
@@ -188,68 +299,88 @@ public class SharpShots {
             // find delta time between frames
             double dt = clock.tick();
             double mins = clock.elapsedMins();
+            eHandler.beginFrame(clock.getFrameTime());
 
             // clear the window
-            StdDraw.clear(Constants.GAME_BG_COLOR);
+            renderer.clear(Constants.GAME_BG_COLOR);
 
             // draw some cool stuff in the background so it isn't static and sad
+            renderer.setLayer(Renderer.BACKGROUND);
+            profiler.start(Profiler.BACKGROUND);
             bg.update(dt);
+            profiler.stop(Profiler.BACKGROUND);
+
+            // randomly generate asteroids and enemies
+            spawn(TIMER, eHandler, p, scroll, mins);
+
+            if (fixedStep) {
+                // step as many times as the frame took, but give up on time
+                // that can't be caught up on instead of falling further behind
+                accumulator += dt;
+                int steps = 0;
+                while (accumulator >= Constants.FIXED_DT &&
+                        steps < Constants.MAX_STEPS_PER_FRAME) {
+                    prevScroll.x = scroll.x;
+                    prevScroll.y = scroll.y;
+                    eHandler.step(Constants.FIXED_DT, scale, scroll);
+                    followPlayer(scroll, p, Constants.FIXED_DT);
+                    accumulator -= Constants.FIXED_DT;
+                    steps++;
+                }
+                if (steps == Constants.MAX_STEPS_PER_FRAME) {
+                    accumulator = Math.min(accumulator, Constants.FIXED_DT);
+                }
 
-            // randomly generate asteroids
-            if (TIMER.checkTimer(asteroidKey)) {
-                eHandler.addAsteroid(genAsteroid(scroll));
-                TIMER.randomizeDuration(asteroidKey, 800, 200);
+                // draw between the last two steps
+                double alpha = accumulator / Constants.FIXED_DT;
+                drawScroll.x = prevScroll.x + (scroll.x - prevScroll.x) * alpha;
+                drawScroll.y = prevScroll.y + (scroll.y - prevScroll.y) * alpha;
+                eHandler.render(dt, scale, drawScroll, alpha);
             }
+            else {
+                // update all entity stuff
+                eHandler.update(dt, scale, scroll);
 
-            // randomly generate enemies
-            if (TIMER.checkTimer(enemyKey) && p.getLives() > 0
-                    && eHandler.getNumberOfEnemies() < 5) {
-                eHandler.addEnemy(genEnemy(scroll));
-                double lowerTime = Math.min(10000 / mins, 5000);
-                double upperTime = Math.min(16000 / mins, 8000);
-                TIMER.randomizeDuration(enemyKey, upperTime, lowerTime);
+                // update the scroll value
+                followPlayer(scroll, p, dt);
             }
 
-            // update all entity stuff
-            eHandler.update(dt, scale, scroll);
-
-            // update the scroll value
-            Point pc = p.center();
-            scroll.x += (pc.x - scroll.x - scale / 2) / scrollSpeedFactor * dt;
-            scroll.y += (pc.y - scroll.y - scale / 2) / scrollSpeedFactor * dt;
+            // everything after this is drawn on top, in order
+            renderer.setLayer(Renderer.HUD);
+            profiler.start(Profiler.HUD);
 
             // write the player's score to the screen
             Point tp = new Point(scale * 0.01, scale * 0.95);
             String score = String.format("SCORE : %.2f", p.getScore());
 
             if (p.getLives() > 0) {
-                StdDraw.setPenColor(Constants.ACCENT_COLOR);
-                StdDraw.textLeft(tp.x - Constants.ACCENT_OFFSET.x,
-                                 tp.y - Constants.ACCENT_OFFSET.y, score);
-                StdDraw.setPenColor(Constants.PRIMARY_COLOR);
-                StdDraw.textLeft(tp.x, tp.y, score);
+                renderer.setColor(Constants.ACCENT_COLOR);
+                renderer.textLeft(tp.x - Constants.ACCENT_OFFSET.x,
+                                  tp.y - Constants.ACCENT_OFFSET.y, score);
+                renderer.setColor(Constants.PRIMARY_COLOR);
+                renderer.textLeft(tp.x, tp.y, score);
             }
             else {
-                StdDraw.setPenColor(Constants.ACCENT_COLOR);
+                renderer.setColor(Constants.ACCENT_COLOR);
                 tp.x = scale * 0.5;
                 tp.y = scale * 0.6;
-                StdDraw.text(tp.x - Constants.ACCENT_OFFSET.x,
-                             tp.y - Constants.ACCENT_OFFSET.y, score);
+                renderer.text(tp.x - Constants.ACCENT_OFFSET.x,
+                              tp.y - Constants.ACCENT_OFFSET.y, score);
                 tp.y = scale * 0.5;
-                StdDraw.text(tp.x - Constants.ACCENT_OFFSET.x,
-                             tp.y - Constants.ACCENT_OFFSET.y, "Play Again?");
+                renderer.text(tp.x - Constants.ACCENT_OFFSET.x,
+                              tp.y - Constants.ACCENT_OFFSET.y, "Play Again?");
                 tp.y = scale * 0.4;
-                StdDraw.text(tp.x - Constants.ACCENT_OFFSET.x,
-                             tp.y - Constants.ACCENT_OFFSET.y,
-                             "(Press Enter)");
+                renderer.text(tp.x - Constants.ACCENT_OFFSET.x,
+                              tp.y - Constants.ACCENT_OFFSET.y,
+                              "(Press Enter)");
 
-                StdDraw.setPenColor(Constants.PRIMARY_COLOR);
+                renderer.setColor(Constants.PRIMARY_COLOR);
                 tp.y = scale * 0.6;
-                StdDraw.text(tp.x, tp.y, score);
+                renderer.text(tp.x, tp.y, score);
                 tp.y = scale * 0.5;
-                StdDraw.text(tp.x, tp.y, "Play Again?");
+                renderer.text(tp.x, tp.y, "Play Again?");
                 tp.y = scale * 0.4;
-                StdDraw.text(tp.x, tp.y, "(Press Enter)");
+                renderer.text(tp.x, tp.y, "(Press Enter)");
                 if (StdDraw.isKeyPressed(KeyEvent.VK_ENTER)) {
                     p = new Player();
                     Enemy.setTarget(p);
@@ -263,8 +394,21 @@ public class SharpShots {
             p.drawHealth(scale * 0.98, scale * 0.9, scale);
 
             p.drawAmmo(scale * 0.98, scale * 0.85, scale);
+            profiler.stop(Profiler.HUD);
 
-            StdDraw.show();
+            if (profile) {
+                renderer.setFont(profileFont);
+                renderer.setColor(Constants.PRIMARY_COLOR);
+                profiler.draw(scale * 0.01, scale * 0.88, scale * 0.025);
+                renderer.setFont(font);
+            }
+
+            if (pipeline != null) {
+                pipeline.publish();
+            }
+            else {
+                renderer.flush();
+            }
             StdDraw.pause(20);
         }
     }
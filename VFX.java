@@ -1,5 +1,6 @@
 import java.awt.Color;
-import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class VFX {
 
@@ -11,6 +12,21 @@ public class VFX {
     private static final double SPARK_MAX_LEN = Constants.SCALE * 0.05;
     private static final double PULSE_DEAD_TOLERANCE = Constants.SCALE * 0.005;
 
+    // how many of each particle can be alive at once
+    public static final int SPARK_CAPACITY = 4096;
+    public static final int GLOW_CAPACITY = 4096;
+    public static final int PULSE_CAPACITY = 512;
+
+    // frames for a glow to fade all the way to its target color
+    private static final double GLOW_LERP_RATE = 5;
+
+    private static final Color EXHAUST_FADE = new Color(0, 0, 0, 10);
+
+    // half the widest glow ring per unit of pen radius, in game units,
+    // StdDraw's pen radius is a fraction of the canvas width
+    private static final double RING_SPREAD = Math.pow(1.5, 9) / 2 *
+            Constants.SCALE;
+
     private static final Color[] EXHAUST_COLORS = {
             new Color(255, 50, 50, 10), new Color(255, 69, 0, 10),
             new Color(255, 191, 0, 10), new Color(255, 168, 18, 10)
@@ -25,54 +41,89 @@ public class VFX {
 
     }
 
-    // render a glow effect
+    // render a glow effect, drawn as one pre-rendered sprite where the
+    // renderer has them
     public static void glow(Point p, double rad, Color glow, double intensity) {
-        throwIntensityError(intensity);
-        StdDraw.setPenColor(glow);
-
-        double basePenSize = StdDraw.getPenRadius();
-        double penSize = basePenSize;
-
-        int iterations = (int) (10 * intensity);
-
-        for (int i = 0; i < iterations; i++) {
-            StdDraw.circle(p.x, p.y, rad);
+        glow(p.x, p.y, rad, glow, intensity);
+    }
 
-            penSize *= 1.5;
-            StdDraw.setPenRadius(penSize);
-        }
+    public static void glow(double x, double y, double rad, Color glow,
+                            double intensity) {
+        glow(x, y, rad, glow, intensity, 1);
+    }
 
-        StdDraw.setPenRadius(basePenSize);
+    // detail is the fraction of the usual rings to draw, effects under a
+    // budget pass in theirs
+    public static void glow(double x, double y, double rad, Color glow,
+                            double intensity, double detail) {
+        throwIntensityError(intensity);
+        Renderer renderer = Renderer.current();
+        renderer.setColor(glow);
+        renderer.glow(x, y, rad, rings(intensity, detail));
     }
 
     // render a glowing polygon
     public static void glow(double[] x, double[] y, Color glow,
                             double intensity) {
         throwIntensityError(intensity);
-        StdDraw.setPenColor(glow);
+        Renderer renderer = Renderer.current();
+        renderer.setColor(glow);
 
-        double basePenSize = StdDraw.getPenRadius();
+        double basePenSize = renderer.getPenRadius();
         double penSize = basePenSize;
 
-        int iterations = (int) (10 * intensity);
+        int iterations = rings(intensity, 1);
 
         for (int i = 0; i < iterations; i++) {
-            StdDraw.polygon(x, y);
+            renderer.polygon(x, y);
 
             penSize *= 1.5;
-            StdDraw.setPenRadius(penSize);
+            renderer.setPenRadius(penSize);
         }
 
-        StdDraw.setPenRadius(basePenSize);
+        renderer.setPenRadius(basePenSize);
     }
 
-    public static Spark genExhaustSpark(Point p, Vector vel) {
-        Vector newVel = new Vector(vel);
-        newVel.invert();
-        p.add(newVel);
-        newVel.scale(StdRandom.uniform() * 0.5 + 0.25);
-        newVel.rotate(StdRandom.uniform() * 90 - 45);
-        return new Spark(p, newVel);
+    // number of rings for a glow of some intensity at some detail
+    private static int rings(double intensity, double detail) {
+        return Math.max(1, (int) (10 * intensity * detail));
+    }
+
+    // how far a glow can drift from where it spawned before it dies out,
+    // plus how far it draws, a step of dt only shrinks it by 0.075 * dt but
+    // moves it its whole velocity
+    private static double glowReach(double speed, double radius, double dt) {
+        double shrink = Math.min(1, 0.075 * dt);
+        double steps = 1;
+        if (radius >= EXHAUST_DEAD_RAD && shrink < 1) {
+            steps += Math.floor(Math.log(EXHAUST_DEAD_RAD / radius) /
+                                        Math.log(1 - shrink));
+        }
+        return speed * steps + radius * 3 + ringSpread();
+    }
+
+    // how far a spark can get, it moves its whole velocity every step and
+    // loses 0.1 * dt of it, plus the tail it draws
+    private static double sparkReach(double speed, double dt) {
+        double slow = Math.min(1, 0.1 * dt);
+        return speed / slow + speed * 1.5;
+    }
+
+    // a pulse stays put and grows to its radius, its rings go further
+    private static double pulseReach(double radius, Color glow) {
+        return radius + (glow != null ? ringSpread() : 0);
+    }
+
+    // how far past its circle the widest ring of a glow can reach
+    private static double ringSpread() {
+        return Renderer.current().getPenRadius() * RING_SPREAD;
+    }
+
+    // return if a circle around a point overlaps the camera
+    private static boolean onCamera(double x, double y, double r,
+                                    Rectangle camera) {
+        return x + r >= camera.getLft() && x - r <= camera.getRht() &&
+                y + r >= camera.getBot() && y - r <= camera.getTop();
     }
 
     public static Color lerp(Color c1, Color c2, double value) {
@@ -91,6 +142,19 @@ public class VFX {
         return new Color(r, g, b, a);
     }
 
+    // same as lerp but on packed argb ints
+    public static int lerp(int c1, int c2, double value) {
+        int a = lerpChannel(c1 >>> 24, c2 >>> 24, value);
+        int r = lerpChannel((c1 >> 16) & 0xFF, (c2 >> 16) & 0xFF, value);
+        int g = lerpChannel((c1 >> 8) & 0xFF, (c2 >> 8) & 0xFF, value);
+        int b = lerpChannel(c1 & 0xFF, c2 & 0xFF, value);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    private static int lerpChannel(double c1, double c2, double value) {
+        return clampRGB((int) (c1 + ((c2 - c1) * value)));
+    }
+
     private static int clampRGB(int val) {
         val = Math.min(255, val);
         val = Math.max(0, val);
@@ -99,228 +163,739 @@ public class VFX {
 
     // subclasses --------------------------------------------------------------
 
-    // effect subclass
-    public static class Effect {
+    // fixed size pool of one kind of particle, every field lives in its own
+    // primitive array and the live particles are always [0, size), a dead
+    // one gets the last live one swapped into its slot
+    public static class Pool {
+
+        // static vars ---------------------------------------------------------
+
+        // pools at least this big update on the fork/join pool, below it
+        // splitting the work up costs more than it saves
+        public static final int DEFAULT_PARALLEL_THRESHOLD = 2048;
+
+        // particles a single task updates
+        private static final int CHUNK = 512;
 
         // instance vars -------------------------------------------------------
 
-        // life boolean
-        protected boolean dead = false;
+        protected final int capacity;
+        protected int size;
+
+        // set by the update pass, cleared out by the compact pass
+        protected final boolean[] dead;
+
+        // spawns dropped because the pool was full
+        private long overflows;
+
+        // particles handed a slot since the start
+        private long spawned;
+
+        // particles skipped by the last draw for being off camera
+        private int culled;
+
+        // fraction of glow rings the current draw uses
+        protected double detail = 1;
+
+        private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
 
         // constructors --------------------------------------------------------
 
-        // default constructor
-        public Effect() {
+        public Pool(int capacity) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("Capacity must be positive.");
+            }
+            this.capacity = capacity;
+            dead = new boolean[capacity];
+        }
+
+        // getters -------------------------------------------------------------
+
+        public int size() {
+            return size;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public long getOverflows() {
+            return overflows;
+        }
+
+        public long getSpawned() {
+            return spawned;
+        }
+
+        public int getCulled() {
+            return culled;
+        }
+
+        public int getParallelThreshold() {
+            return parallelThreshold;
+        }
+
+        // setters -------------------------------------------------------------
 
+        public void setParallelThreshold(int parallelThreshold) {
+            if (parallelThreshold < 0) {
+                throw new IllegalArgumentException("Threshold must be >= 0.");
+            }
+            this.parallelThreshold = parallelThreshold;
         }
 
         // other methods -------------------------------------------------------
 
-        // update method
-        public void update(double dt) {
+        // take the next free slot, -1 and counted if the pool is full
+        protected int claim() {
+            if (size == capacity) {
+                overflows++;
+                return -1;
+            }
+            dead[size] = false;
+            spawned++;
+            return size++;
+        }
 
+        public void clear() {
+            size = 0;
         }
 
-        // die method
-        public void die() {
-            dead = true;
+        // move everything along then drop whatever died, each particle's
+        // update only touches its own slot so chunks can run on any thread
+        // and still give the same result as one loop
+        public void step(double dt) {
+            if (size >= parallelThreshold && size > CHUNK) {
+                ForkJoinPool.commonPool().invoke(new Chunk(0, size, dt));
+            }
+            else {
+                update(0, size, dt);
+            }
+            compact();
         }
 
-        // return dead boolean
-        public boolean isDead() {
-            return dead;
+        private void update(int from, int to, double dt) {
+            for (int i = from; i < to; i++) {
+                dead[i] = !update(i, dt);
+            }
         }
 
-        // draw method
-        public void draw(Vector scroll) {
+        // swap the last live particle into every dead slot
+        protected void compact() {
+            int i = 0;
+            while (i < size) {
+                if (!dead[i]) {
+                    i++;
+                    continue;
+                }
+                size--;
+                if (i != size) {
+                    move(size, i);
+                    dead[i] = dead[size];
+                }
+            }
+        }
+
+        // draw everything that might be on camera, world coordinates, a null
+        // camera draws everything
+        // detail is the fraction of glow rings to draw
+        public void draw(Vector scroll, Rectangle camera, double detail) {
+            this.detail = detail;
+            culled = 0;
+            for (int i = 0; i < size; i++) {
+                if (camera == null || onCamera(i, camera)) {
+                    draw(i, scroll);
+                }
+                else {
+                    culled++;
+                }
+            }
+        }
+
+        // move particle i along, return false once it dies
+        protected boolean update(int i, double dt) {
+            return true;
+        }
 
+        // copy a particle into another slot
+        protected void move(int from, int to) {
+        }
+
+        protected void draw(int i, Vector scroll) {
+        }
+
+        // return if anything particle i draws could be on camera
+        protected boolean onCamera(int i, Rectangle camera) {
+            return true;
+        }
+
+        public String toString() {
+            return String.format("%d/%d (%d dropped)", size, capacity,
+                                 overflows);
+        }
+
+        // subclasses ----------------------------------------------------------
+
+        // updates a range of particles, splitting in half until it's small
+        private class Chunk extends RecursiveAction {
+
+            private static final long serialVersionUID = 1L;
+
+            private final int from;
+            private final int to;
+            private final double dt;
+
+            private Chunk(int from, int to, double dt) {
+                this.from = from;
+                this.to = to;
+                this.dt = dt;
+            }
+
+            protected void compute() {
+                if (to - from <= CHUNK) {
+                    update(from, to, dt);
+                    return;
+                }
+                int mid = (from + to) >>> 1;
+                invokeAll(new Chunk(from, mid, dt), new Chunk(mid, to, dt));
+            }
         }
     }
 
-    // circular glow particle subclass
-    public static class Glow extends Effect {
+    // sparks, each one flies off along its velocity and slows to a stop
+    public static class SparkPool extends Pool {
+
+        // instance vars -------------------------------------------------------
+
+        private final double[] x;
+        private final double[] y;
+        private final double[] velX;
+        private final double[] velY;
+
+        // reused for every spark drawn, the renderer copies them
+        private final double[] px = new double[4];
+        private final double[] py = new double[4];
+
+        // constructors --------------------------------------------------------
+
+        public SparkPool(int capacity) {
+            super(capacity);
+            x = new double[capacity];
+            y = new double[capacity];
+            velX = new double[capacity];
+            velY = new double[capacity];
+        }
+
+        // other methods -------------------------------------------------------
+
+        public void add(Point p, Vector vel) {
+            int i = claim();
+            if (i < 0) {
+                return;
+            }
+            x[i] = p.x;
+            y[i] = p.y;
+            velX[i] = vel.x;
+            velY[i] = vel.y;
+        }
 
-        // exhaust attrs
-        private Color glow;
-        private Color glowLerp;
-        private Point p;
-        private Vector vel;
-        private double radius;
-        private double lerpRate = 5;
+        // move along, then slow down by a tenth of the speed per unit of dt
+        protected boolean update(int i, double dt) {
+            double vx = velX[i];
+            double vy = velY[i];
+            x[i] += vx;
+            y[i] += vy;
+
+            double angle = Math.atan2(vy, vx);
+            double slow = Math.sqrt(vx * vx + vy * vy) * 0.1 * dt;
+            vx -= Math.cos(angle) * slow;
+            vy -= Math.sin(angle) * slow;
+            velX[i] = vx;
+            velY[i] = vy;
+            return Math.sqrt(vx * vx + vy * vy) > SPARK_DEAD_LEN;
+        }
 
-        // constructor
-        public Glow(Point p, Vector vel, double radius, Color glow) {
-            this.glow = glow;
-            this.p = new Point(p);
-            this.vel = new Vector(vel);
-            this.radius = radius;
+        protected void move(int from, int to) {
+            x[to] = x[from];
+            y[to] = y[from];
+            velX[to] = velX[from];
+            velY[to] = velY[from];
         }
 
-        public Glow(Point p, Vector vel, double radius, Color g1, Color g2) {
-            this.p = new Point(p);
-            this.vel = new Vector(vel);
-            this.radius = radius;
-            glow = g1;
-            glowLerp = g2;
+        // the tail is the furthest point out, 1.5 times the speed
+        protected boolean onCamera(int i, Rectangle camera) {
+            double vx = velX[i];
+            double vy = velY[i];
+            double r = Math.sqrt(vx * vx + vy * vy) * 1.5;
+            return VFX.onCamera(x[i], y[i], r, camera);
         }
 
-        // reset the alpha value of the glow
-        public void setAlpha(double alpha) {
-            if (alpha < 0 || alpha > 1) {
-                throw new IllegalArgumentException("0.0 <= alpha <= 1.0");
+        // a diamond pointing along the velocity, its length is the speed
+        protected void draw(int i, Vector scroll) {
+            double vx = velX[i];
+            double vy = velY[i];
+            double mag = Math.sqrt(vx * vx + vy * vy);
+            double angle = Math.atan2(vy, vx);
+            if (angle < 0) {
+                angle = 2 * Math.PI + angle;
             }
-            int r = glow.getRed();
-            int g = glow.getGreen();
-            int b = glow.getBlue();
-            glow = new Color(r, g, b, (int) (255 * alpha));
+            double hPI = Math.PI / 2;
+            double cx = x[i] - scroll.x;
+            double cy = y[i] - scroll.y;
+
+            px[0] = cx + mag * Math.cos(angle);
+            px[1] = cx + mag * Math.cos(angle + hPI) * 0.25;
+            px[2] = cx - mag * Math.cos(angle) * 1.5;
+            px[3] = cx + mag * Math.cos(angle - hPI) * 0.25;
+            py[0] = cy + mag * Math.sin(angle);
+            py[1] = cy + mag * Math.sin(angle + hPI) * 0.25;
+            py[2] = cy - mag * Math.sin(angle) * 1.5;
+            py[3] = cy - mag * Math.sin(angle + hPI) * 0.25;
+
+            Renderer.current().setColor(Constants.PRIMARY_COLOR);
+            Renderer.current().polygon(px, py);
         }
+    }
+
+    // glowing circles that drift and shrink away, fading to a target color
+    // if they have one, colors are packed argb
+    public static class GlowPool extends Pool {
+
+        // instance vars -------------------------------------------------------
+
+        private final double[] x;
+        private final double[] y;
+        private final double[] velX;
+        private final double[] velY;
+        private final double[] radius;
+        private final int[] color;
+        private final int[] target;
+        private final boolean[] lerps;
 
-        // get the glow color
-        public Color getColor() {
-            return glow;
+        // constructors --------------------------------------------------------
+
+        public GlowPool(int capacity) {
+            super(capacity);
+            x = new double[capacity];
+            y = new double[capacity];
+            velX = new double[capacity];
+            velY = new double[capacity];
+            radius = new double[capacity];
+            color = new int[capacity];
+            target = new int[capacity];
+            lerps = new boolean[capacity];
         }
 
-        // update method
-        public void update(double dt) {
-            p.add(vel);
+        // other methods -------------------------------------------------------
 
-            radius -= radius * 0.075 * dt;
-            if (radius < EXHAUST_DEAD_RAD) {
-                die();
+        // target is the color to fade to, null to keep the glow as is
+        public void add(Point p, Vector vel, double radius, Color glow,
+                        Color target) {
+            int i = claim();
+            if (i < 0) {
+                return;
+            }
+            x[i] = p.x;
+            y[i] = p.y;
+            velX[i] = vel.x;
+            velY[i] = vel.y;
+            this.radius[i] = radius;
+            color[i] = glow.getRGB();
+            lerps[i] = target != null;
+            if (lerps[i]) {
+                this.target[i] = target.getRGB();
             }
+        }
+
+        // move along, then shrink by 7.5% per unit of dt
+        protected boolean update(int i, double dt) {
+            x[i] += velX[i];
+            y[i] += velY[i];
 
-            if (glowLerp != null) {
-                glow = lerp(glow, glowLerp, dt / lerpRate);
+            radius[i] -= radius[i] * 0.075 * dt;
+            if (lerps[i]) {
+                color[i] = lerp(color[i], target[i], dt / GLOW_LERP_RATE);
             }
+            return radius[i] >= EXHAUST_DEAD_RAD;
         }
 
-        // draw method
-        public void draw(Vector scroll) {
-            StdDraw.setPenColor(Constants.PRIMARY_COLOR);
-            StdDraw.circle(p.x - scroll.x, p.y - scroll.y, radius);
+        protected void move(int from, int to) {
+            x[to] = x[from];
+            y[to] = y[from];
+            velX[to] = velX[from];
+            velY[to] = velY[from];
+            radius[to] = radius[from];
+            color[to] = color[from];
+            target[to] = target[from];
+            lerps[to] = lerps[from];
+        }
 
-            Point c = new Point(p);
-            c.subtract(scroll);
-            glow(c, radius * 3, glow, 1);
+        protected boolean onCamera(int i, Rectangle camera) {
+            double r = radius[i] * 3 + ringSpread();
+            return VFX.onCamera(x[i], y[i], r, camera);
+        }
+
+        protected void draw(int i, Vector scroll) {
+            double cx = x[i] - scroll.x;
+            double cy = y[i] - scroll.y;
+            Renderer.current().setColor(Constants.PRIMARY_COLOR);
+            Renderer.current().circle(cx, cy, radius[i]);
+            glow(cx, cy, radius[i] * 3, new Color(color[i], true), 1,
+                 detail);
         }
     }
 
-    // spark particle subclass
-    public static class Spark extends Effect {
+    // two rings that grow out to a radius, the inner one catching up
+    public static class PulsePool extends Pool {
+
+        // instance vars -------------------------------------------------------
+
+        private final double[] x;
+        private final double[] y;
+        private final double[] r1;
+        private final double[] r2;
+        private final double[] maxR;
+        private final int[] color;
+        private final boolean[] glows;
 
-        // spark attrs
-        private Point p;
-        private Vector vel;
+        // constructors --------------------------------------------------------
 
-        public Spark(Point p, Vector vel) {
-            this.p = new Point(p);
-            this.vel = new Vector(vel);
+        public PulsePool(int capacity) {
+            super(capacity);
+            x = new double[capacity];
+            y = new double[capacity];
+            r1 = new double[capacity];
+            r2 = new double[capacity];
+            maxR = new double[capacity];
+            color = new int[capacity];
+            glows = new boolean[capacity];
         }
 
-        public void update(double dt) {
-            p.add(vel);
-            vel.subtract(vel.norm() * 0.1 * dt);
-            if (vel.norm() <= SPARK_DEAD_LEN) {
-                die();
+        // other methods -------------------------------------------------------
+
+        // glow can be null for a plain pulse
+        public void add(Point p, double radius, Color glow) {
+            int i = claim();
+            if (i < 0) {
+                return;
+            }
+            x[i] = p.x;
+            y[i] = p.y;
+            maxR[i] = radius;
+            r2[i] = radius / 2;
+            r1[i] = 0;
+            glows[i] = glow != null;
+            if (glows[i]) {
+                color[i] = glow.getRGB();
             }
         }
 
-        public void draw(Vector scroll) {
-            double mag = vel.norm();
-            double angle = vel.rotAngle();
-            double hPI = Math.PI / 2;
+        // grow both rings, it's done once the inner one catches up
+        protected boolean update(int i, double dt) {
+            r2[i] += (maxR[i] - r2[i]) * 0.5 * dt;
+            r2[i] = Math.min(r2[i], maxR[i]);
+            r1[i] += (maxR[i] - r1[i]) * 0.4 * dt;
+            return r2[i] - r1[i] > PULSE_DEAD_TOLERANCE;
+        }
 
-            double[] px = {
-                    p.x + mag * Math.cos(angle) - scroll.x,
-                    p.x + mag * Math.cos(angle + hPI) * 0.25 - scroll.x,
-                    p.x - mag * Math.cos(angle) * 1.5 - scroll.x,
-                    p.x + mag * Math.cos(angle - hPI) * 0.25 - scroll.x
-            };
-            double[] py = {
-                    p.y + mag * Math.sin(angle) - scroll.y,
-                    p.y + mag * Math.sin(angle + hPI) * 0.25 - scroll.y,
-                    p.y - mag * Math.sin(angle) * 1.5 - scroll.y,
-                    p.y - mag * Math.sin(angle + hPI) * 0.25 - scroll.y
-            };
+        protected void move(int from, int to) {
+            x[to] = x[from];
+            y[to] = y[from];
+            r1[to] = r1[from];
+            r2[to] = r2[from];
+            maxR[to] = maxR[from];
+            color[to] = color[from];
+            glows[to] = glows[from];
+        }
 
-            StdDraw.setPenColor(Constants.PRIMARY_COLOR);
-            StdDraw.polygon(px, py);
+        protected boolean onCamera(int i, Rectangle camera) {
+            double r = r2[i] + (glows[i] ? ringSpread() : 0);
+            return VFX.onCamera(x[i], y[i], r, camera);
         }
 
+        protected void draw(int i, Vector scroll) {
+            Renderer renderer = Renderer.current();
+            double cx = x[i] - scroll.x;
+            double cy = y[i] - scroll.y;
+
+            renderer.setColor(Constants.PRIMARY_COLOR);
+            renderer.circle(cx, cy, r1[i]);
+            renderer.circle(cx, cy, r2[i]);
+            if (glows[i]) {
+                glow(cx, cy, r2[i], new Color(color[i], true), 1, detail);
+            }
+        }
     }
 
-    // pulse subclass
-    public static class Pulse extends Effect {
+    // keeps particle cost bounded, spawns past the live cap or too far off
+    // camera to ever be seen are dropped, and while frames run over the
+    // target time spark counts, exhaust and the particles' glow rings get
+    // scaled down
+    public static class Budget {
 
-        // pulse attrs
-        private Point p;
-        private double r2;
-        private double r1;
-        private double maxR;
-        private Color glow;
+        // static vars ---------------------------------------------------------
 
-        public Pulse(Point p, double radius) {
-            this.p = new Point(p);
-            maxR = radius;
-            r2 = maxR / 2;
-            r1 = 0;
+        public static final int DEFAULT_MAX_LIVE = 3000;
+
+        // the game loop sleeps 20ms a frame, so an idle frame takes a bit
+        // more than that
+        public static final double DEFAULT_TARGET_FRAME_TIME = 25;
+
+        // detail never goes below this
+        private static final double MIN_DETAIL = 0.25;
+
+        // detail is multiplied by this each frame over the target, and gets
+        // this much back each frame under it
+        private static final double DETAIL_DROP = 0.9;
+        private static final double DETAIL_RECOVERY = 0.02;
+
+        // why a spawn was dropped
+        public static final int CAPPED = 0;
+        public static final int REDUCED = 1;
+        public static final int OFF_CAMERA = 2;
+
+        // instance vars -------------------------------------------------------
+
+        private int maxLive;
+        private double targetFrameTime;
+        private double detail = 1;
+
+        // the part of a spawn owed, so thinned out spawns are spread evenly
+        private double owed;
+
+        // spawns this far outside can't be seen, null to not check
+        private Rectangle camera;
+
+        // drops by reason, this frame, last frame and ever
+        private int[] dropped = new int[3];
+        private int[] lastDropped = new int[3];
+        private long[] totalDropped = new long[3];
+
+        // constructors --------------------------------------------------------
+
+        public Budget() {
+            this(DEFAULT_MAX_LIVE, DEFAULT_TARGET_FRAME_TIME);
         }
 
-        public Pulse(Point p, double radius, Color glow) {
-            this.p = new Point(p);
-            this.glow = glow;
-            maxR = radius;
-            r2 = maxR / 2;
-            r1 = 0;
+        public Budget(int maxLive, double targetFrameTime) {
+            setMaxLive(maxLive);
+            setTargetFrameTime(targetFrameTime);
         }
 
-        public void update(double dt) {
-            r2 += (maxR - r2) * 0.5 * dt;
-            r2 = Math.min(r2, maxR);
-            r1 += (maxR - r1) * 0.4 * dt;
-            if (r2 - r1 <= PULSE_DEAD_TOLERANCE) {
-                die();
+        // getters -------------------------------------------------------------
+
+        public int getMaxLive() {
+            return maxLive;
+        }
+
+        public double getTargetFrameTime() {
+            return targetFrameTime;
+        }
+
+        // return the fraction of spawns and glow rings being kept
+        public double getDetail() {
+            return detail;
+        }
+
+        // return spawns dropped last frame for a reason
+        public int getDropped(int reason) {
+            return lastDropped[reason];
+        }
+
+        // return all spawns dropped last frame
+        public int getDropped() {
+            return lastDropped[CAPPED] + lastDropped[REDUCED] +
+                    lastDropped[OFF_CAMERA];
+        }
+
+        // return spawns dropped for a reason since the start
+        public long getTotalDropped(int reason) {
+            return totalDropped[reason];
+        }
+
+        // setters -------------------------------------------------------------
+
+        public void setMaxLive(int maxLive) {
+            if (maxLive < 0) {
+                throw new IllegalArgumentException("Max can't be negative.");
+            }
+            this.maxLive = maxLive;
+        }
+
+        public void setTargetFrameTime(double targetFrameTime) {
+            if (targetFrameTime <= 0) {
+                throw new IllegalArgumentException("Target must be positive.");
+            }
+            this.targetFrameTime = targetFrameTime;
+        }
+
+        public void setCamera(Rectangle camera) {
+            this.camera = camera;
+        }
+
+        // other methods -------------------------------------------------------
+
+        // start a frame, frameTime is how long frames are taking in ms
+        public void beginFrame(double frameTime) {
+            for (int i = 0; i < dropped.length; i++) {
+                lastDropped[i] = dropped[i];
+                dropped[i] = 0;
+            }
+
+            if (frameTime > targetFrameTime) {
+                detail = Math.max(MIN_DETAIL, detail * DETAIL_DROP);
+            }
+            else {
+                detail = Math.min(1, detail + DETAIL_RECOVERY);
             }
         }
 
-        public void draw(Vector scroll) {
-            StdDraw.setPenColor(Constants.PRIMARY_COLOR);
-            StdDraw.circle(p.x - scroll.x, p.y - scroll.y, r1);
-            StdDraw.circle(p.x - scroll.x, p.y - scroll.y, r2);
-            if (glow != null) {
-                glow(new Point(p.x - scroll.x, p.y - scroll.y), r2, glow, 1);
+        // return if there's room for another particle, counts it if not
+        public boolean hasRoom(int live) {
+            if (live < maxLive) {
+                return true;
             }
+            drop(CAPPED, 1);
+            return false;
+        }
+
+        // return if n spawns at a point that can travel some distance might
+        // ever be on camera, counts them if not
+        public boolean canReach(double x, double y, double reach, int n) {
+            if (camera == null) {
+                return true;
+            }
+            double dx = Math.max(camera.getLft() - x, x - camera.getRht());
+            double dy = Math.max(camera.getBot() - y, y - camera.getTop());
+            if (dx <= reach && dy <= reach) {
+                return true;
+            }
+            drop(OFF_CAMERA, n);
+            return false;
+        }
+
+        // return how many of n spawns to keep at the current detail
+        public int scale(int n) {
+            int keep = (int) Math.round(n * detail);
+            drop(REDUCED, n - keep);
+            return keep;
+        }
+
+        // return if a single spawn should be kept at the current detail
+        public boolean thin() {
+            owed += detail;
+            if (owed >= 1) {
+                owed -= 1;
+                return true;
+            }
+            drop(REDUCED, 1);
+            return false;
+        }
+
+        public void drop(int reason, int n) {
+            dropped[reason] += n;
+            totalDropped[reason] += n;
+        }
+
+        public String toString() {
+            return String.format("Particles dropped last frame: %d capped, " +
+                                         "%d reduced, %d off camera, " +
+                                         "detail %.2f%n",
+                                 lastDropped[CAPPED], lastDropped[REDUCED],
+                                 lastDropped[OFF_CAMERA], detail);
         }
     }
 
     // actual class stuff ------------------------------------------------------
 
-    // store all effects in a single list
-    private ArrayList<Effect> effects;
+    // one pool per kind of particle
+    private SparkPool sparks;
+    private GlowPool glows;
+    private PulsePool pulses;
+
+    // decides which spawns are worth it
+    private Budget budget = new Budget();
+
+    // dt of the last step that moved anything, how far new particles can
+    // get depends on it
+    private double stepDt = Constants.FIXED_DT;
 
     // constructor
     public VFX() {
-        effects = new ArrayList<>();
+        this(SPARK_CAPACITY, GLOW_CAPACITY, PULSE_CAPACITY);
     }
 
-    // restart method
-    public void clear() {
-        effects.clear();
+    public VFX(int sparkCapacity, int glowCapacity, int pulseCapacity) {
+        sparks = new SparkPool(sparkCapacity);
+        glows = new GlowPool(glowCapacity);
+        pulses = new PulsePool(pulseCapacity);
+    }
+
+    // return the number of live particles
+    public int size() {
+        return sparks.size() + glows.size() + pulses.size();
+    }
+
+    // return how many particles fit in the pools
+    public int getCapacity() {
+        return sparks.getCapacity() + glows.getCapacity() +
+                pulses.getCapacity();
+    }
+
+    public Budget getBudget() {
+        return budget;
+    }
+
+    // start a frame, frameTime is how long frames are taking in ms
+    public void beginFrame(double frameTime) {
+        budget.beginFrame(frameTime);
+    }
+
+    // where the camera is, spawns that could never reach it are dropped
+    public void setCamera(Rectangle camera) {
+        budget.setCamera(camera);
+    }
+
+    // return how many spawns were dropped because a pool was full
+    public long getOverflows() {
+        return sparks.getOverflows() + glows.getOverflows() +
+                pulses.getOverflows();
+    }
+
+    // return how many particles have been spawned since the start
+    public long getSpawned() {
+        return sparks.getSpawned() + glows.getSpawned() +
+                pulses.getSpawned();
     }
 
-    // add effects
-    public void addEffects(ArrayList<Effect> effects) {
-        this.effects.addAll(effects);
+    // restart method
+    public void clear() {
+        sparks.clear();
+        glows.clear();
+        pulses.clear();
     }
 
-    // add a glow particle
+    // add a glow particle, thinned out like exhaust while over budget
     public void addGlow(Point p, Vector vel, double radius, Color glow) {
-        Glow e = new Glow(p, vel, radius, glow);
-        effects.add(e);
+        double reach = glowReach(vel.norm(), radius, stepDt);
+        if (!budget.hasRoom(size()) || !budget.canReach(p.x, p.y, reach, 1) ||
+                !budget.thin()) {
+            return;
+        }
+        glows.add(p, vel, radius, glow, null);
     }
 
     // special glow particle
     public void addExhaust(Point p, Vector vel) {
+        // exhaust starts a ship's length back and leaves at half the ship's
+        // speed at most, and is never bigger than EXHAUST_RAD
+        double reach = glowReach(vel.norm() * 0.5, EXHAUST_RAD, stepDt) +
+                vel.norm();
+        if (!budget.hasRoom(size()) || !budget.canReach(p.x, p.y, reach, 1) ||
+                !budget.thin()) {
+            return;
+        }
+
         int i = StdRandom.uniform(EXHAUST_COLORS.length);
         Vector newVel = new Vector(vel);
         newVel.invert();
@@ -328,27 +903,42 @@ public class VFX {
         newVel.scale(StdRandom.uniform() * 0.25 + 0.25);
         newVel.rotate(StdRandom.uniform() * 45 - 22.5);
         double radius = StdRandom.uniform() * EXHAUST_RAD / 2 + EXHAUST_RAD / 2;
-        effects.add(new Glow(p, newVel, radius, EXHAUST_COLORS[i],
-                             new Color(0, 0, 0, 10)));
+        glows.add(p, newVel, radius, EXHAUST_COLORS[i], EXHAUST_FADE);
     }
 
     // add a spark particle
     public void addSparks(int n, Point p, Vector vel, double angleRange) {
+        // the fastest spark leaves at twice vel
+        double speed = Math.min(vel.norm() * 2, SPARK_MAX_LEN);
+        double reach = sparkReach(speed, stepDt);
+        if (!budget.canReach(p.x, p.y, reach, n)) {
+            return;
+        }
+        n = budget.scale(n);
+
+        Vector v = new Vector();
         for (int i = 0; i < n; i++) {
-            Vector v = new Vector(vel);
+            if (!budget.hasRoom(size())) {
+                budget.drop(Budget.CAPPED, n - i - 1);
+                return;
+            }
+            v.copy(vel);
             v.rotate(StdRandom.uniform() * angleRange - angleRange / 2);
             v.scale(StdRandom.uniform(0.5, 2));
             v.clamp(SPARK_MAX_LEN);
-            effects.add(new Spark(p, v));
+            sparks.add(p, v);
         }
     }
 
     public void addPulse(Point p, double radius) {
-        effects.add(new Pulse(p, radius));
+        addPulse(p, radius, null);
     }
 
     public void addPulse(Point p, double radius, Color glow) {
-        effects.add(new Pulse(p, radius, glow));
+        if (budget.hasRoom(size()) &&
+                budget.canReach(p.x, p.y, pulseReach(radius, glow), 1)) {
+            pulses.add(p, radius, glow);
+        }
     }
 
     public void genExplosion(Point p, double size) {
@@ -358,17 +948,137 @@ public class VFX {
         addPulse(p, size);
     }
 
-    // update effects method
-    public void update(Vector scroll, double dt) {
-        effects.forEach(e -> {
-            e.update(dt);
-            e.draw(scroll);
-        });
+    // pools at least this big update in parallel, 0 always does
+    public void setParallelThreshold(int parallelThreshold) {
+        sparks.setParallelThreshold(parallelThreshold);
+        glows.setParallelThreshold(parallelThreshold);
+        pulses.setParallelThreshold(parallelThreshold);
+    }
+
+    // return how many particles the last draw skipped for being off camera
+    public int getCulled() {
+        return sparks.getCulled() + glows.getCulled() + pulses.getCulled();
+    }
+
+    // simulation pass, moves effects along without drawing them
+    public void step(double dt) {
+        if (dt > 0) {
+            stepDt = dt;
+        }
+        sparks.step(dt);
+        glows.step(dt);
+        pulses.step(dt);
+    }
+
+    // render pass, draws the effects that might be on camera, world
+    // coordinates, a null camera draws everything
+    public void draw(Vector scroll, Rectangle camera) {
+        double detail = budget.getDetail();
+        sparks.draw(scroll, camera, detail);
+        glows.draw(scroll, camera, detail);
+        pulses.draw(scroll, camera, detail);
+    }
 
-        effects.removeIf(Effect::isDead);
+    public String toString() {
+        return "Sparks: " + sparks + "\n"
+                + "Glows: " + glows + "\n"
+                + "Pulses: " + pulses + "\n";
     }
 
     public static void main(String[] args) {
+        VFX vfx = new VFX(64, 64, 8);
+        vfx.setCamera(new Rectangle(0, 100, 100, 0));
+        for (int i = 0; i < 20; i++) {
+            // frames running long, then one far off camera explosion
+            vfx.beginFrame(i < 10 ? 40 : 10);
+            vfx.genExplosion(new Point(50, 50), 5);
+            vfx.genExplosion(new Point(500, 50), 5);
+            vfx.step(1);
+        }
+        StdOut.print(vfx);
+        StdOut.print(vfx.getBudget());
+
+        // whatever gets dropped as off camera must never make it on, at the
+        // game's steps and the old one frame per step
+        Renderer.use(new Renderer());
+        double[] dts = { Constants.FIXED_DT, 0.4, 1 };
+        for (double dt : dts) {
+            int[] result = checkOffCamera(dt, 2000);
+            StdOut.printf("dt %.3f: %d off camera drops, %d reached it%n",
+                          dt, result[0], result[1]);
+            if (result[1] > 0) {
+                throw new RuntimeException("Dropped particles reached the " +
+                                                   "camera at dt " + dt + ".");
+            }
+        }
+    }
+
+    // spawn one kind of effect at a point, aimed at a target
+    private static void spawn(VFX vfx, int kind, Point p, Point target) {
+        Vector toward = new Vector(new Point(p), target);
+        switch (kind) {
+            case 0:
+                toward.clamp(SPARK_MAX_LEN);
+                vfx.addSparks(StdRandom.uniform(3, 8), new Point(p), toward,
+                              StdRandom.uniform(0.0, 90));
+                break;
+            case 1:
+                // exhaust leaves against the ship's velocity
+                toward.clamp(StdRandom.uniform(0.1, 3));
+                toward.invert();
+                vfx.addExhaust(new Point(p), toward);
+                break;
+            case 2:
+                toward.clamp(StdRandom.uniform(0.1, 1));
+                vfx.addGlow(new Point(p), toward, StdRandom.uniform(0.5, 1),
+                            Constants.PLAYER_GLOW);
+                break;
+            default:
+                vfx.addPulse(new Point(p), StdRandom.uniform(1.0, 20),
+                             StdRandom.bernoulli() ? Constants.PLAYER_GLOW
+                                                   : null);
+        }
+    }
 
+    // spawn effects around the camera, and every one dropped as off camera
+    // again into a world with no camera to run it until it dies, returns the
+    // drops and how many of them drew on camera
+    private static int[] checkOffCamera(double dt, int trials) {
+        double scale = Constants.SCALE;
+        Rectangle camera = new Rectangle(0, scale, scale, 0);
+        Point target = new Point(scale / 2, scale / 2);
+        Vector scroll = new Vector();
+        int[] result = new int[2];
+        for (int t = 0; t < trials; t++) {
+            StdRandom.setSeed(t);
+            Point p = new Point(StdRandom.uniform(-scale * 3, scale * 4),
+                                StdRandom.uniform(-scale * 3, scale * 4));
+            int kind = t % 4;
+
+            VFX vfx = new VFX();
+            vfx.stepDt = dt;
+            vfx.setCamera(camera);
+            StdRandom.setSeed(trials + t);
+            spawn(vfx, kind, p, target);
+            if (vfx.getBudget().getTotalDropped(Budget.OFF_CAMERA) == 0) {
+                continue;
+            }
+            result[0]++;
+
+            VFX free = new VFX();
+            free.stepDt = dt;
+            StdRandom.setSeed(trials + t);
+            spawn(free, kind, p, target);
+            while (free.size() > 0) {
+                free.step(dt);
+                free.draw(scroll, camera);
+                Renderer.current().flush();
+                if (free.getCulled() < free.size()) {
+                    result[1]++;
+                    break;
+                }
+            }
+        }
+        return result;
     }
 }
@@ -156,7 +156,8 @@ public class Vector extends Point {
     // draws the vector with the head
     public void drawDebug(Vector scroll) {
         Point end = new Point(origX + x - scroll.x, origY + y - scroll.y);
-        StdDraw.line(origX - scroll.x, origY - scroll.y, end.x, end.y);
+        Renderer.current().line(origX - scroll.x, origY - scroll.y,
+                                end.x, end.y);
 
         // draw the little arrow head to make it look cool
         if (norm() > 0) {
@@ -188,7 +189,7 @@ public class Vector extends Point {
                 yHead[i] = py * cos + px * sin + end.y;
             }
 
-            StdDraw.filledPolygon(xHead, yHead);
+            Renderer.current().filledPolygon(xHead, yHead);
         }
     }
 
@@ -215,6 +216,14 @@ public class Vector extends Point {
         y = y / (length / size);
     }
 
+    // reset the vector and its origin back to 0
+    public void zero() {
+        x = 0;
+        y = 0;
+        origX = 0;
+        origY = 0;
+    }
+
     // invert the vector
     public void invert() {
         x *= -1;